@@ -0,0 +1,60 @@
+package horizons.cstest.benchmark;
+
+import horizons.cstest.codec.AggregatedOrderCodec;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+
+// Encoding a board of `levels` levels per side with the binary codec against the toString format it replaces.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CodecBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int levels;
+
+    private List<AggregatedOrder> board;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        SimpleOrderBook orderBook = new SimpleOrderBook();
+        for(int i = 0; i < levels; i++) {
+            orderBook.addOrder(Order.ofUnits(BUY, 1000 + i, 1 + random.nextInt(10_000), "user1"));
+            orderBook.addOrder(Order.ofUnits(SELL, 1000 + levels + i, 1 + random.nextInt(10_000), "user1"));
+        }
+        board = orderBook.getAllAggregatedOrders();
+        buffer = ByteBuffer.allocateDirect(AggregatedOrderCodec.boardSize(board.size()));
+    }
+
+    @Benchmark
+    public ByteBuffer binary() {
+        buffer.clear();
+        AggregatedOrderCodec.encodeBoard(board, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public byte[] string() {
+        StringBuilder text = new StringBuilder();
+        for(AggregatedOrder level : board) {
+            text.append(level).append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,112 @@
+package horizons.cstest.benchmark;
+
+import horizons.cstest.manager.ConcurrentOrderBook;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+
+/*
+ Threads sharing one ConcurrentOrderBook, to see how throughput holds up as writers and readers are added.
+ In the `mixed` group writers add and cancel while readers take the best bid, the top levels and the board in turn;
+ `writes` runs writers only. Writers alternate sides by thread and each keeps `depth` orders of its own resting, its
+ add cancelling its oldest order. Vary the threads with -tg, e.g. -tg 2,6 for two writers and six readers in
+ `mixed`. Throughput can only grow with threads on a machine with a core for each.
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentOrderBookBenchmark {
+    private static final int SCRIPT_SIZE = 1 << 12;
+    private static final int TRADERS = 100;
+
+    @State(Scope.Group)
+    public static class Book {
+        @Param({"100", "10000"})
+        public int levels;
+
+        private ConcurrentOrderBook orderBook;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            orderBook = new ConcurrentOrderBook();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Writer {
+        @Param({"1000"})
+        public int depth;
+
+        private final Order[] orders = new Order[SCRIPT_SIZE];
+        private long[] resting;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void generateScript(Book book, ThreadParams threadParams) {
+            OrderSide side = threadParams.getThreadIndex() % 2 == 0 ? BUY : SELL;
+            Random random = new Random(threadParams.getThreadIndex());
+            for(int i = 0; i < SCRIPT_SIZE; i++) {
+                orders[i] = Order.ofUnits(side, 1000 + random.nextInt(book.levels), 1 + random.nextInt(10_000),
+                                          "trader" + random.nextInt(TRADERS));
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            resting = new long[depth];
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Reader {
+        private int next;
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void write(Book book, Writer writer, Blackhole blackhole) {
+        write(book.orderBook, writer, blackhole);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public void read(Book book, Reader reader, Blackhole blackhole) {
+        switch(reader.next++ % 3) {
+            case 0:
+                blackhole.consume(book.orderBook.getBestBid());
+                break;
+            case 1:
+                blackhole.consume(book.orderBook.getTopLevels(SELL, 10));
+                break;
+            default:
+                blackhole.consume(book.orderBook.getBoardSnapshot());
+        }
+    }
+
+    @Benchmark
+    @Group("writes")
+    @GroupThreads(4)
+    public void writeOnly(Book book, Writer writer, Blackhole blackhole) {
+        write(book.orderBook, writer, blackhole);
+    }
+
+    private static void write(ConcurrentOrderBook orderBook, Writer writer, Blackhole blackhole) {
+        int i = writer.next++;
+        int slot = i % writer.resting.length;
+        // ids are never 0, the first round cancels nothing
+        blackhole.consume(orderBook.cancelOrder(writer.resting[slot]));
+        writer.resting[slot] = orderBook.addOrder(writer.orders[i & (SCRIPT_SIZE - 1)]);
+    }
+}
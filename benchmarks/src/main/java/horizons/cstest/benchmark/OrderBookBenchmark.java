@@ -0,0 +1,137 @@
+package horizons.cstest.benchmark;
+
+import horizons.cstest.manager.ConcurrentOrderBook;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.metrics.MeteredOrderBook;
+import horizons.cstest.model.Order;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+
+/*
+ Every invocation applies the next operation of a pre-generated script to a book filled with `depth` orders spread
+ over `levels` prices per side, so neither order creation nor randomness is measured.
+ Mixes are the share of add, cancel and read operations. To keep the book around the requested depth whatever the
+ mix, a cancel turns into an add once the book is down to half its depth and an add into a cancel once it is twice
+ as deep. The book is rebuilt before every iteration.
+ * */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderBookBenchmark {
+
+    public enum Implementation {
+        SIMPLE, CONCURRENT, MATCHING, OFF_HEAP, METERED, METERED_CONCURRENT, TICK;
+
+        OrderBook newOrderBook(int levels) {
+            switch(this) {
+                case SIMPLE: return new SimpleOrderBook();
+                case CONCURRENT: return new ConcurrentOrderBook();
+                case OFF_HEAP: return SimpleOrderBook.offHeap();
+                case METERED: return new MeteredOrderBook(new SimpleOrderBook());
+                case METERED_CONCURRENT: return MeteredOrderBook.threadSafe(new ConcurrentOrderBook());
+                // prices are 1000 up to 1000 + levels, the band holds them with room to spare
+                case TICK: return SimpleOrderBook.tickIndexed(1000 + levels / 2, 2 * levels);
+                // random orders cross all the time, so most adds trade and ids picked for cancels may be gone already
+                default: return new SimpleOrderBook(fill -> {});
+            }
+        }
+    }
+
+    public enum Mix {
+        ADD_HEAVY(70, 20), CANCEL_HEAVY(20, 70), READ_HEAVY(5, 5);
+
+        private final int addPercent;
+        private final int cancelPercent;
+
+        Mix(int addPercent, int cancelPercent) {
+            this.addPercent = addPercent;
+            this.cancelPercent = cancelPercent;
+        }
+    }
+
+    private static final int SCRIPT_SIZE = 1 << 16;
+    private static final int ADD = 0, CANCEL = 1, READ = 2;
+    private static final int TRADERS = 100;
+
+    @Param({"SIMPLE", "CONCURRENT", "MATCHING", "OFF_HEAP", "METERED", "METERED_CONCURRENT", "TICK"})
+    public Implementation implementation;
+
+    @Param({"ADD_HEAVY", "CANCEL_HEAVY", "READ_HEAVY"})
+    public Mix mix;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int depth;
+
+    @Param({"1", "100", "10000"})
+    public int levels;
+
+    private final Order[] orders = new Order[SCRIPT_SIZE];
+    private final int[] operations = new int[SCRIPT_SIZE];
+    private final int[] cancelPicks = new int[SCRIPT_SIZE];
+    private int next;
+
+    private OrderBook orderBook;
+    private long[] resting;
+    private int restingCount;
+
+    @Setup(Level.Trial)
+    public void generateScript() {
+        Random random = new Random(42);
+        for(int i = 0; i < SCRIPT_SIZE; i++) {
+            orders[i] = randomOrder(random);
+            int percent = random.nextInt(100);
+            operations[i] = percent < mix.addPercent ? ADD : percent < mix.addPercent + mix.cancelPercent ? CANCEL : READ;
+            cancelPicks[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillOrderBook() {
+        Random random = new Random(7);
+        orderBook = implementation.newOrderBook(levels);
+        resting = new long[depth * 2];
+        restingCount = 0;
+        for(int i = 0; i < depth; i++) {
+            resting[restingCount++] = orderBook.addOrder(randomOrder(random));
+        }
+    }
+
+    @Benchmark
+    public void mixed(Blackhole blackhole) {
+        int i = next++ & (SCRIPT_SIZE - 1);
+        int operation = operations[i];
+        if(operation == CANCEL && restingCount <= depth / 2 || operation == ADD && restingCount == resting.length) {
+            operation = operation == CANCEL ? ADD : CANCEL;
+        }
+        switch(operation) {
+            case ADD:
+                resting[restingCount++] = orderBook.addOrder(orders[i]);
+                break;
+            case CANCEL:
+                // cancel anywhere in the book, the last resting id takes the place of the cancelled one
+                int pick = cancelPicks[i] % restingCount;
+                blackhole.consume(orderBook.cancelOrder(resting[pick]));
+                resting[pick] = resting[--restingCount];
+                break;
+            default:
+                blackhole.consume(orderBook.getAllAggregatedOrders());
+        }
+    }
+
+    private Order randomOrder(Random random) {
+        return Order.ofUnits(random.nextBoolean() ? BUY : SELL,
+                             1000 + random.nextInt(levels),
+                             1 + random.nextInt(10_000),
+                             "trader" + random.nextInt(TRADERS));
+    }
+}
@@ -0,0 +1,94 @@
+package horizons.cstest.benchmark;
+
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.Order;
+import horizons.cstest.persistence.JournaledOrderBook;
+import horizons.cstest.persistence.OrderBookRecovery;
+import horizons.cstest.persistence.OrderJournal;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+
+/*
+ Time to rebuild a book of `orders` resting orders from a journal holding nothing but their adds, with no snapshot, so
+ all of it is replayed. The journal is written once per trial, its pages are in the OS cache by the time it is read.
+ Each invocation recovers into a new book, which needs a heap of a few gigabytes for ten million orders.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xms3g", "-Xmx3g"})
+public class RecoveryBenchmark {
+    private static final int TRADERS = 100;
+    private static final int LEVELS = 1000;
+
+    public enum Implementation {
+        SIMPLE, OFF_HEAP;
+
+        SimpleOrderBook newOrderBook() {
+            return this == SIMPLE ? new SimpleOrderBook() : SimpleOrderBook.offHeap();
+        }
+    }
+
+    @Param({"1000000", "10000000"})
+    public int orders;
+
+    @Param
+    public Implementation implementation;
+
+    private Path directory;
+    private Path journalFile;
+    private SimpleOrderBook orderBook;
+
+    @Setup(Level.Trial)
+    public void writeJournal() throws IOException {
+        directory = Files.createTempDirectory("recovery");
+        journalFile = directory.resolve("journal");
+        Random random = new Random(17);
+        try(OrderJournal journal = OrderJournal.open(journalFile, 0)) {
+            for(long orderId = 1; orderId <= orders; orderId++) {
+                // buys below sells, as recovered orders never cross
+                boolean buy = random.nextBoolean();
+                long price = buy ? 1000 + random.nextInt(LEVELS) : 1000 + LEVELS + random.nextInt(LEVELS);
+                journal.add(orderId, Order.ofUnits(buy ? BUY : SELL, price, 1 + random.nextInt(10_000),
+                                                   "trader" + random.nextInt(TRADERS)));
+            }
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void newOrderBook() {
+        orderBook = implementation.newOrderBook();
+    }
+
+    @TearDown(Level.Invocation)
+    public void closeOrderBook() {
+        orderBook.close();
+        orderBook = null;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteJournal() throws IOException {
+        try(Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public int recover() throws IOException {
+        try(JournaledOrderBook recovered = OrderBookRecovery.recover(orderBook, directory.resolve("snapshot"), journalFile, 0)) {
+            return recovered.getOrderCount();
+        }
+    }
+}
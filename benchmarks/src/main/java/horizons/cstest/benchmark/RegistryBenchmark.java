@@ -0,0 +1,62 @@
+package horizons.cstest.benchmark;
+
+import horizons.cstest.manager.OrderBookRegistry;
+import horizons.cstest.model.Order;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+
+/*
+ Four callers spreading add-then-cancel operations over 64 symbols, to see throughput grow with the number of shards.
+ Each invocation submits a burst of operations and waits for the last one of every symbol, which a shard applies
+ after the earlier ones of that symbol.
+ * */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class RegistryBenchmark {
+    private static final int SYMBOLS = 64;
+    private static final int BURST = 1024;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private OrderBookRegistry registry;
+    private final String[] symbols = new String[SYMBOLS];
+    private final Order[] orders = new Order[BURST];
+
+    @Setup
+    public void setUp() {
+        registry = new OrderBookRegistry(shards);
+        for(int i = 0; i < SYMBOLS; i++) {
+            symbols[i] = "SYM" + i;
+        }
+        for(int i = 0; i < BURST; i++) {
+            orders[i] = Order.ofUnits(i % 2 == 0 ? BUY : SELL, 1000 + i % 100, 1000, "trader" + i % 10);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        registry.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BURST)
+    public void addAndCancel() {
+        CompletableFuture<?>[] last = new CompletableFuture<?>[SYMBOLS];
+        for(int i = 0; i < BURST; i++) {
+            Order order = orders[i];
+            last[i % SYMBOLS] = registry.submit(symbols[i % SYMBOLS], orderBook -> orderBook.cancelOrder(orderBook.addOrder(order)));
+        }
+        CompletableFuture.allOf(last).join();
+    }
+}
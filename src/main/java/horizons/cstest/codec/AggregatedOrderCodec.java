@@ -0,0 +1,101 @@
+package horizons.cstest.codec;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ Fixed 17 byte layout of an AggregatedOrder, in the buffer's byte order:
+   0  side       byte, ordinal of OrderSide
+   1  price      long
+   9  quantity   long, in grams
+ A board is an int count of levels followed by the levels in board order.
+ * */
+public final class AggregatedOrderCodec {
+    public static final int SIZE = 17;
+    public static final int BOARD_HEADER_SIZE = 4;
+
+    static final int SIDE_OFFSET = 0;
+    static final int PRICE_OFFSET = 1;
+    static final int QUANTITY_OFFSET = 9;
+
+    private static final OrderSide[] SIDES = OrderSide.values();
+
+    private AggregatedOrderCodec() {
+    }
+
+    // writes at the buffer's position and moves it past the level
+    public static void encode(AggregatedOrder level, ByteBuffer buffer){
+        int offset = buffer.position();
+        encode(level, buffer, offset);
+        buffer.position(offset + SIZE);
+    }
+
+    public static void encode(AggregatedOrder level, ByteBuffer buffer, int offset){
+        if(buffer.limit() - offset < SIZE){
+            throw new IllegalArgumentException("Check buffer argument!");
+        }
+        buffer.put(offset + SIDE_OFFSET, (byte) level.getSide().ordinal());
+        buffer.putLong(offset + PRICE_OFFSET, level.getPrice());
+        buffer.putLong(offset + QUANTITY_OFFSET, level.getQuantityUnits());
+    }
+
+    public static AggregatedOrder decode(ByteBuffer buffer){
+        int offset = buffer.position();
+        AggregatedOrder level = decode(buffer, offset);
+        buffer.position(offset + SIZE);
+        return level;
+    }
+
+    public static AggregatedOrder decode(ByteBuffer buffer, int offset){
+        return AggregatedOrder.ofUnits(side(buffer, offset), price(buffer, offset), quantity(buffer, offset));
+    }
+
+    public static int boardSize(int levels){
+        return BOARD_HEADER_SIZE + levels * SIZE;
+    }
+
+    // writes the levels at the buffer's position without allocating and moves it past the board
+    public static void encodeBoard(List<AggregatedOrder> levels, ByteBuffer buffer){
+        int offset = buffer.position();
+        int size = levels.size();
+        if(buffer.limit() - offset < boardSize(size)){
+            throw new IllegalArgumentException("Check buffer argument!");
+        }
+        buffer.putInt(offset, size);
+        offset += BOARD_HEADER_SIZE;
+        for(int i = 0; i < size; i++){ // indexed rather than iterated, an iterator would be garbage
+            encode(levels.get(i), buffer, offset);
+            offset += SIZE;
+        }
+        buffer.position(offset);
+    }
+
+    public static List<AggregatedOrder> decodeBoard(ByteBuffer buffer){
+        int offset = buffer.position();
+        int size = buffer.getInt(offset);
+        offset += BOARD_HEADER_SIZE;
+        List<AggregatedOrder> levels = new ArrayList<>(size);
+        for(int i = 0; i < size; i++){
+            levels.add(decode(buffer, offset));
+            offset += SIZE;
+        }
+        buffer.position(offset);
+        return levels;
+    }
+
+    static OrderSide side(ByteBuffer buffer, int offset){
+        return SIDES[buffer.get(offset + SIDE_OFFSET)];
+    }
+
+    static long price(ByteBuffer buffer, int offset){
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    static long quantity(ByteBuffer buffer, int offset){
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+}
@@ -0,0 +1,51 @@
+package horizons.cstest.codec;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+
+import java.nio.ByteBuffer;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+// Reads a level encoded by AggregatedOrderCodec in place, a field is only decoded when it is asked for.
+public class AggregatedOrderFlyweight {
+    private ByteBuffer buffer;
+    private int offset;
+
+    public AggregatedOrderFlyweight wrap(ByteBuffer buffer, int offset){
+        if(buffer == null || offset < 0 || buffer.limit() - offset < AggregatedOrderCodec.SIZE){
+            throw new IllegalArgumentException("Check buffer arguments!");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    // wraps the level-th level of a board starting at boardOffset
+    public AggregatedOrderFlyweight wrapLevel(ByteBuffer buffer, int boardOffset, int level){
+        if(level < 0 || level >= buffer.getInt(boardOffset)){
+            throw new IllegalArgumentException("Check level argument!");
+        }
+        return wrap(buffer, boardOffset + AggregatedOrderCodec.BOARD_HEADER_SIZE + level * AggregatedOrderCodec.SIZE);
+    }
+
+    public OrderSide getSide(){
+        return AggregatedOrderCodec.side(buffer, offset);
+    }
+
+    public long getPrice(){
+        return AggregatedOrderCodec.price(buffer, offset);
+    }
+
+    public double getQuantity(){ // in kg
+        return toKg(getQuantityUnits());
+    }
+
+    public long getQuantityUnits(){ // in grams
+        return AggregatedOrderCodec.quantity(buffer, offset);
+    }
+
+    public AggregatedOrder toAggregatedOrder(){
+        return AggregatedOrderCodec.decode(buffer, offset);
+    }
+}
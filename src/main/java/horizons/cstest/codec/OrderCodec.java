@@ -0,0 +1,113 @@
+package horizons.cstest.codec;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.nio.ByteBuffer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ Fixed 48 byte layout of an Order, in the buffer's byte order:
+   0  side       byte, ordinal of OrderSide
+   1  price      long
+   9  quantity   long, in grams
+  17  trader     byte length followed by up to 30 bytes of UTF-8, zero padded
+ Every order takes the same room, so the n-th order of a buffer is found without reading the ones before it.
+ * */
+public final class OrderCodec {
+    public static final int SIZE = 48;
+    public static final int TRADER_CAPACITY = 30;
+
+    static final int SIDE_OFFSET = 0;
+    static final int PRICE_OFFSET = 1;
+    static final int QUANTITY_OFFSET = 9;
+    static final int TRADER_LENGTH_OFFSET = 17;
+    static final int TRADER_OFFSET = 18;
+
+    private static final OrderSide[] SIDES = OrderSide.values();
+
+    private OrderCodec() {
+    }
+
+    // writes at the buffer's position and moves it past the order
+    public static void encode(Order order, ByteBuffer buffer){
+        int offset = buffer.position();
+        encode(order, buffer, offset);
+        buffer.position(offset + SIZE);
+    }
+
+    public static void encode(Order order, ByteBuffer buffer, int offset){
+        if(buffer.limit() - offset < SIZE){
+            throw new IllegalArgumentException("Check buffer argument!");
+        }
+        String trader = order.getTrader();
+        int length = putAscii(trader, buffer, offset + TRADER_OFFSET);
+        if(length < 0){
+            byte[] bytes = trader.getBytes(UTF_8);
+            if(bytes.length > TRADER_CAPACITY){
+                throw new IllegalArgumentException("Check trader argument!");
+            }
+            for(int i = 0; i < bytes.length; i++){
+                buffer.put(offset + TRADER_OFFSET + i, bytes[i]);
+            }
+            length = bytes.length;
+        }
+        for(int i = length; i < TRADER_CAPACITY; i++){
+            buffer.put(offset + TRADER_OFFSET + i, (byte) 0);
+        }
+        buffer.put(offset + SIDE_OFFSET, (byte) order.getSide().ordinal());
+        buffer.putLong(offset + PRICE_OFFSET, order.getPrice());
+        buffer.putLong(offset + QUANTITY_OFFSET, order.getQuantityUnits());
+        buffer.put(offset + TRADER_LENGTH_OFFSET, (byte) length);
+    }
+
+    // reads at the buffer's position and moves it past the order
+    public static Order decode(ByteBuffer buffer){
+        int offset = buffer.position();
+        Order order = decode(buffer, offset);
+        buffer.position(offset + SIZE);
+        return order;
+    }
+
+    public static Order decode(ByteBuffer buffer, int offset){
+        return Order.ofUnits(side(buffer, offset), price(buffer, offset), quantity(buffer, offset), trader(buffer, offset));
+    }
+
+    static OrderSide side(ByteBuffer buffer, int offset){
+        return SIDES[buffer.get(offset + SIDE_OFFSET)];
+    }
+
+    static long price(ByteBuffer buffer, int offset){
+        return buffer.getLong(offset + PRICE_OFFSET);
+    }
+
+    static long quantity(ByteBuffer buffer, int offset){
+        return buffer.getLong(offset + QUANTITY_OFFSET);
+    }
+
+    static String trader(ByteBuffer buffer, int offset){
+        byte[] trader = new byte[buffer.get(offset + TRADER_LENGTH_OFFSET)];
+        for(int i = 0; i < trader.length; i++){
+            trader[i] = buffer.get(offset + TRADER_OFFSET + i);
+        }
+        return new String(trader, UTF_8);
+    }
+
+    // most trader names are plain ASCII and are copied without going through a byte array
+    // returns -1 when the name has to be encoded as UTF-8 instead
+    private static int putAscii(String trader, ByteBuffer buffer, int offset) {
+        int length = trader.length();
+        if(length > TRADER_CAPACITY){
+            return -1;
+        }
+        for(int i = 0; i < length; i++){
+            char c = trader.charAt(i);
+            if(c >= 0x80){
+                return -1;
+            }
+            buffer.put(offset + i, (byte) c);
+        }
+        return length;
+    }
+}
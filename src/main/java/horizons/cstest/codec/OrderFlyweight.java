@@ -0,0 +1,48 @@
+package horizons.cstest.codec;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.nio.ByteBuffer;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+// Reads an order encoded by OrderCodec in place, a field is only decoded when it is asked for.
+// One flyweight is meant to be wrapped around one order after another instead of creating an Order for each.
+public class OrderFlyweight {
+    private ByteBuffer buffer;
+    private int offset;
+
+    public OrderFlyweight wrap(ByteBuffer buffer, int offset){
+        if(buffer == null || offset < 0 || buffer.limit() - offset < OrderCodec.SIZE){
+            throw new IllegalArgumentException("Check buffer arguments!");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        return this;
+    }
+
+    public OrderSide getSide(){
+        return OrderCodec.side(buffer, offset);
+    }
+
+    public long getPrice(){
+        return OrderCodec.price(buffer, offset);
+    }
+
+    public double getQuantity(){ // in kg
+        return toKg(getQuantityUnits());
+    }
+
+    public long getQuantityUnits(){ // in grams
+        return OrderCodec.quantity(buffer, offset);
+    }
+
+    public String getTrader(){
+        return OrderCodec.trader(buffer, offset);
+    }
+
+    public Order toOrder(){
+        return OrderCodec.decode(buffer, offset);
+    }
+}
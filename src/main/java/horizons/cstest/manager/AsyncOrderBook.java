@@ -0,0 +1,158 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/*
+ Front end for many client threads, one per client and possibly virtual, over a book that need not be thread safe.
+
+ Reads of the board are coalesced: a caller joins the read that is waiting to run if there is one and only starts a
+ new one on the executor otherwise. A read leaves the queue just before it looks at the book, so whoever comes later
+ starts the next one and never gets a board older than its call. All callers of one read share the same snapshot and
+ the same unmodifiable lists, the levels are copied once however many clients asked for them.
+ Writes run on the calling thread, in the order each caller made them, and return a future that is already complete.
+ The book is guarded by a ReentrantLock rather than synchronized so that a virtual thread waiting for it does not
+ pin its carrier thread.
+ * */
+public class AsyncOrderBook {
+    private final OrderBook orderBook;
+    private final Executor executor;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final AtomicReference<BoardRead> pendingRead = new AtomicReference<>();
+
+    // reads run on the executor, e.g. Executors.newVirtualThreadPerTaskExecutor()
+    public AsyncOrderBook(OrderBook orderBook, Executor executor) {
+        if(orderBook == null || executor == null){
+            throw new IllegalArgumentException("Check async book arguments!");
+        }
+        this.orderBook = orderBook;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Long> addOrder(Order order){
+        return write(book -> book.addOrder(order));
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(long orderId){
+        return write(book -> book.cancelOrder(orderId));
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(Order order){
+        return write(book -> book.cancelOrder(order));
+    }
+
+    public CompletableFuture<Boolean> amendOrder(long orderId, long price, double quantity){
+        return write(book -> book.amendOrder(orderId, price, quantity));
+    }
+
+    public CompletableFuture<BoardSnapshot> getBoardSnapshot(){
+        // a copy so that a caller completing or cancelling its future leaves the others alone
+        return read().board.copy();
+    }
+
+    public CompletableFuture<List<AggregatedOrder>> getAggregatedBuyOrders(){ // descending order
+        return read().board.thenApply(BoardSnapshot::getBuyLevels);
+    }
+
+    public CompletableFuture<List<AggregatedOrder>> getAggregatedSellOrders(){ // ascending order
+        return read().board.thenApply(BoardSnapshot::getSellLevels);
+    }
+
+    public CompletableFuture<List<AggregatedOrder>> getAllAggregatedOrders(){ // buy orders followed by sell orders
+        return read().allLevels.copy();
+    }
+
+    // runs any other call, reads included, on the executor while holding the book, not coalesced
+    public <T> CompletableFuture<T> submit(Function<OrderBook, T> call){
+        if(call == null){
+            throw new IllegalArgumentException("Check call argument!");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(locked(call));
+                }
+                catch(RuntimeException e){
+                    result.completeExceptionally(e);
+                }
+            });
+        }
+        catch(RejectedExecutionException e){
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> CompletableFuture<T> write(Function<OrderBook, T> call){
+        try {
+            return CompletableFuture.completedFuture(locked(call));
+        }
+        catch(RuntimeException e){
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private BoardRead read(){
+        while(true) {
+            BoardRead pending = pendingRead.get();
+            if(pending != null){
+                return pending;
+            }
+            BoardRead read = new BoardRead();
+            if(pendingRead.compareAndSet(null, read)){
+                try {
+                    executor.execute(() -> run(read));
+                }
+                catch(RejectedExecutionException e){
+                    pendingRead.compareAndSet(read, null);
+                    read.board.completeExceptionally(e);
+                }
+                return read;
+            }
+        }
+    }
+
+    private void run(BoardRead read){
+        pendingRead.compareAndSet(read, null);
+        try {
+            read.board.complete(locked(OrderBook::getBoardSnapshot));
+        }
+        catch(RuntimeException e){
+            read.board.completeExceptionally(e);
+        }
+    }
+
+    private <T> T locked(Function<OrderBook, T> call){
+        lock.lock();
+        try {
+            return call.apply(orderBook);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private static List<AggregatedOrder> allLevels(BoardSnapshot board){
+        List<AggregatedOrder> levels = new ArrayList<>(board.getBuyLevels().size() + board.getSellLevels().size());
+        levels.addAll(board.getBuyLevels());
+        levels.addAll(board.getSellLevels());
+        return Collections.unmodifiableList(levels);
+    }
+
+    // one coalesced read, both sides are put together in one list once for all of its callers
+    private static class BoardRead {
+        private final CompletableFuture<BoardSnapshot> board = new CompletableFuture<>();
+        private final CompletableFuture<List<AggregatedOrder>> allLevels = board.thenApply(AsyncOrderBook::allLevels);
+    }
+}
@@ -0,0 +1,47 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+
+import java.util.List;
+
+// Immutable view of both sides of the book at one point in time, shared by every reader until the book changes.
+// Versions only go up, a snapshot with the same version as one read before holds the same levels.
+public final class BoardSnapshot {
+    private final long version;
+    private final List<AggregatedOrder> buyLevels;
+    private final List<AggregatedOrder> sellLevels;
+
+    // the lists are expected to be unmodifiable and not to be changed by anybody else
+    BoardSnapshot(long version, List<AggregatedOrder> buyLevels, List<AggregatedOrder> sellLevels) {
+        this.version = version;
+        this.buyLevels = buyLevels;
+        this.sellLevels = sellLevels;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<AggregatedOrder> getBuyLevels() { // descending order
+        return buyLevels;
+    }
+
+    public List<AggregatedOrder> getSellLevels() { // ascending order
+        return sellLevels;
+    }
+
+    // null if there are no buy orders
+    public AggregatedOrder getBestBid() {
+        return buyLevels.isEmpty() ? null : buyLevels.get(0);
+    }
+
+    // null if there are no sell orders
+    public AggregatedOrder getBestOffer() {
+        return sellLevels.isEmpty() ? null : sellLevels.get(0);
+    }
+
+    @Override
+    public String toString() {
+        return "Board " + version + " " + buyLevels + " " + sellLevels;
+    }
+}
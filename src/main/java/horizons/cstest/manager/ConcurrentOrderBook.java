@@ -0,0 +1,622 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static horizons.cstest.model.Quantity.toKg;
+import static horizons.cstest.model.Quantity.toUnits;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/*
+ Order book safe to share between any number of writer and reader threads.
+
+ Writers only contend with writers of the same side: each side has its own lock guarding its ladder and the orders
+ resting on it, so a buy and a sell can be added or cancelled at the same time.
+ A writer updates its ladder, then the version, level count and best level of its side, so a write stays
+ O(log levels) and allocates nothing for readers but a new best level when that changed.
+ Readers take no lock: level counts and best levels are volatile fields of each side, top levels are read straight
+ off the ladder, and the board is copied from both ladders by the first reader to find it behind the sides, then
+ shared by every reader after it until the book changes again. Reads off the ladders are optimistic: they are
+ validated against the side locks and taken again if a writer got in the way, so a board shows both sides as they
+ were at one point in time. Only a reader that keeps losing to writers falls back to the read locks.
+ The best levels and level counts of the two sides are each current, but not read at one point in time together.
+ * */
+public class ConcurrentOrderBook implements OrderBook {
+    private static final int OPTIMISTIC_READS = 4; // attempts before a reader takes the read locks
+
+    private final AtomicLong nextOrderId = new AtomicLong(1);
+    private final ConcurrentNavigableMap<Long, Order> orders = new ConcurrentSkipListMap<>();
+    private final LongAdder orderCount = new LongAdder(); // size() of the skip list walks all of it
+    // only ever touched inside compute, so a plain set does and unindexing stays O(1)
+    private final ConcurrentMap<Order, Set<Long>> orderIds = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Long>> traderOrderIds = new ConcurrentHashMap<>();
+    private final Side buySide = new Side(BUY);
+    private final Side sellSide = new Side(SELL);
+    private final AtomicReference<Board> board = new AtomicReference<>(Board.EMPTY);
+    private final LevelChangePublisher publisher = new LevelChangePublisher();
+
+    @Override
+    public long addOrder(Order order){
+        if(order == null){
+            throw new IllegalArgumentException("Check order argument!");
+        }
+        long orderId = nextOrderId.getAndIncrement();
+        Side side = side(order.getSide());
+        long stamp = side.lock.writeLock();
+        try {
+            orders.put(orderId, order);
+            orderCount.increment();
+            side.levels.add(order.getPrice(), order.getQuantityUnits());
+            side.changed(order.getPrice());
+        }
+        finally {
+            side.lock.unlockWrite(stamp);
+        }
+        index(order, orderId);
+        return orderId;
+    }
+
+    @Override
+    public boolean cancelOrder(long orderId){
+        Order order = remove(orderId);
+        if(null == order){
+            return false;
+        }
+        unindex(order, orderId);
+        return true;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order){
+        while(true) {
+            Long[] orderId = new Long[1];
+            orderIds.computeIfPresent(order, (o, ids) -> {
+                Iterator<Long> oldest = ids.iterator();
+                orderId[0] = oldest.next();
+                oldest.remove();
+                return ids.isEmpty() ? null : ids;
+            });
+            if(null == orderId[0]){
+                return false;
+            }
+            Order removed = remove(orderId[0], order);
+            if(null != removed){
+                unindex(removed, orderId[0]);
+                return true;
+            }
+        }
+    }
+
+    // the order leaves its old level and joins the new one under the side's lock, so the board never shows it in
+    // neither or both
+    @Override
+    public boolean amendOrder(long orderId, long price, double quantity){
+        if(price <= 0 || toUnits(quantity) <= 0){
+            throw new IllegalArgumentException("Check amend arguments!");
+        }
+        Order order = orders.get(orderId);
+        if(null == order){
+            return false;
+        }
+        Side side = side(order.getSide());
+        Order amended;
+        long stamp = side.lock.writeLock();
+        try {
+            // another thread may have cancelled or amended it in the meantime
+            order = orders.get(orderId);
+            if(null == order){
+                return false;
+            }
+            amended = order.withUnits(price, toUnits(quantity));
+            orders.put(orderId, amended);
+            if(price == order.getPrice()){
+                long delta = amended.getQuantityUnits() - order.getQuantityUnits();
+                if(delta > 0){
+                    side.levels.add(price, delta);
+                }
+                else if(delta < 0){
+                    side.levels.remove(price, -delta);
+                }
+            }
+            else {
+                side.levels.remove(order.getPrice(), order.getQuantityUnits());
+                side.levels.add(price, amended.getQuantityUnits());
+                publisher.publish(side.side, order.getPrice(), side.levels.quantity(order.getPrice()));
+            }
+            side.changed(price);
+        }
+        finally {
+            side.lock.unlockWrite(stamp);
+        }
+        unindex(order, orderId);
+        index(amended, orderId);
+        return true;
+    }
+
+    @Override
+    public List<Long> addOrders(Collection<Order> orders){
+        if(orders == null || orders.contains(null)){
+            throw new IllegalArgumentException("Check orders argument!");
+        }
+        return apply(orders, Collections.emptyList()).addedOrderIds;
+    }
+
+    @Override
+    public int cancelOrders(Collection<Long> orderIds){
+        if(orderIds == null){
+            throw new IllegalArgumentException("Check order ids argument!");
+        }
+        return apply(Collections.emptyList(), orderIds).cancelledOrders;
+    }
+
+    @Override
+    public List<Long> applyBatch(OrderBatch batch){
+        if(batch == null){
+            throw new IllegalArgumentException("Check batch argument!");
+        }
+        return apply(batch.getOrdersToAdd(), batch.getOrderIdsToCancel()).addedOrderIds;
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedBuyOrders(){
+        return new ArrayList<>(board().buyLevels);
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedSellOrders(){
+        return new ArrayList<>(board().sellLevels);
+    }
+
+    @Override
+    public List<AggregatedOrder> getAllAggregatedOrders(){
+        Board current = board();
+        List<AggregatedOrder> aggregatedOrders = new ArrayList<>(current.buyLevels.size() + current.sellLevels.size());
+        aggregatedOrders.addAll(current.buyLevels);
+        aggregatedOrders.addAll(current.sellLevels);
+        return aggregatedOrders;
+    }
+
+    @Override
+    public BoardSnapshot getBoardSnapshot(){
+        return board().snapshot;
+    }
+
+    @Override
+    public AggregatedOrder getBestBid(){
+        return buySide.best;
+    }
+
+    @Override
+    public AggregatedOrder getBestOffer(){
+        return sellSide.best;
+    }
+
+    @Override
+    public Long getSpread(){
+        AggregatedOrder bestBid = buySide.best;
+        AggregatedOrder bestOffer = sellSide.best;
+        if(null == bestBid || null == bestOffer){
+            return null;
+        }
+        return bestOffer.getPrice() - bestBid.getPrice();
+    }
+
+    @Override
+    public List<AggregatedOrder> getTopLevels(OrderSide side, int n){
+        if(side == null || n < 0){
+            throw new IllegalArgumentException("Check top levels arguments!");
+        }
+        return side(side).read(levels -> levels.levels(n));
+    }
+
+    @Override
+    public double getDepthWithin(OrderSide side, long priceRange){
+        if(side == null || priceRange < 0){
+            throw new IllegalArgumentException("Check depth arguments!");
+        }
+        return toKg(board().ladder(side).depthWithin(priceRange));
+    }
+
+    @Override
+    public Double getVwapForQuantity(OrderSide side, double quantity){
+        if(side == null || quantity <= 0){
+            throw new IllegalArgumentException("Check vwap arguments!");
+        }
+        return board().ladder(side).vwap(toUnits(quantity));
+    }
+
+    @Override
+    public List<AggregatedOrder> getCumulativeDepth(OrderSide side){
+        if(side == null){
+            throw new IllegalArgumentException("Check side argument!");
+        }
+        return board().ladder(side).cumulativeLevels();
+    }
+
+    @Override
+    public List<Order> getOrders(){
+        return Collections.unmodifiableList(new ArrayList<>(orders.values()));
+    }
+
+    @Override
+    public int getOrderCount(){
+        return orderCount.intValue();
+    }
+
+    @Override
+    public int getLevelCount(OrderSide side){
+        if(side == null){
+            throw new IllegalArgumentException("Check side argument!");
+        }
+        return side(side).levelCount;
+    }
+
+    @Override
+    public Order getOrder(long orderId){
+        return orders.get(orderId);
+    }
+
+    @Override
+    public List<Order> getOrdersForTrader(String trader){
+        if(isBlank(trader)){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        Set<Long> ids = traderOrderIds.getOrDefault(trader, Collections.emptySet());
+        List<Order> traderOrders = new ArrayList<>(ids.size());
+        for(long orderId : ids){
+            Order order = orders.get(orderId);
+            if(null != order){
+                traderOrders.add(order);
+            }
+            else{
+                // ids are indexed after the order is in the book, so this one was cancelled and left a stale id
+                unindex(trader, orderId);
+            }
+        }
+        return Collections.unmodifiableList(traderOrders);
+    }
+
+    // orders the trader adds while this runs may be left in the book
+    @Override
+    public int cancelAllForTrader(String trader){
+        if(isBlank(trader)){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        Set<Long> ids = traderOrderIds.get(trader);
+        if(null == ids){
+            return 0;
+        }
+        return cancelOrders(new ArrayList<>(ids));
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor){
+        return subscribe(listener, executor, 0);
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor, int capacity){
+        return publisher.subscribe(listener, executor, capacity);
+    }
+
+    // meant for recovery, an add racing with the restore could be handed an id being restored
+    @Override
+    public void restoreOrders(Map<Long, Order> orders, long nextOrderId){
+        if(orders == null){
+            throw new IllegalArgumentException("Check orders argument!");
+        }
+        long maxOrderId = 0;
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            if(order.getKey() <= 0 || order.getValue() == null || this.orders.containsKey(order.getKey())){
+                throw new IllegalArgumentException("Check order " + order.getKey() + "!");
+            }
+            maxOrderId = Math.max(maxOrderId, order.getKey());
+        }
+        this.nextOrderId.accumulateAndGet(Math.max(maxOrderId + 1, nextOrderId), Math::max);
+        apply(new LinkedHashMap<>(orders), Collections.emptyList());
+    }
+
+    @Override
+    public void forEachOrder(OrderVisitor visitor){
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            visitor.visit(order.getKey(), order.getValue());
+        }
+    }
+
+    // the current board, built first if either side changed since the last one
+    private Board board() {
+        Board current = board.get();
+        for(int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long buyVersion = buySide.version;
+            long sellVersion = sellSide.version;
+            if(current.buyVersion == buyVersion && current.sellVersion == sellVersion){
+                return current;
+            }
+            long buyStamp = buySide.lock.tryOptimisticRead();
+            long sellStamp = sellSide.lock.tryOptimisticRead();
+            if(buyStamp == 0 || sellStamp == 0){
+                // a writer holds the lock, copying now would be wasted
+                Thread.onSpinWait();
+                continue;
+            }
+            buyVersion = buySide.version;
+            sellVersion = sellSide.version;
+            try {
+                Board next = current.with(buySide, sellSide, buyVersion, sellVersion);
+                if(buySide.lock.validate(buyStamp) && sellSide.lock.validate(sellStamp)){
+                    board.compareAndSet(current, next);
+                    return next;
+                }
+            }
+            catch(RuntimeException e){
+                // a copy torn by a writer may fail in any way, anything else is a bug
+                if(buySide.lock.validate(buyStamp) && sellSide.lock.validate(sellStamp)){
+                    throw e;
+                }
+            }
+            current = board.get();
+        }
+        long buyStamp = buySide.lock.readLock();
+        long sellStamp = sellSide.lock.readLock();
+        try {
+            current = board.get();
+            Board next = current.with(buySide, sellSide, buySide.version, sellSide.version);
+            board.compareAndSet(current, next);
+            return next;
+        }
+        finally {
+            sellSide.lock.unlockRead(sellStamp);
+            buySide.lock.unlockRead(buyStamp);
+        }
+    }
+
+    private Side side(OrderSide side) {
+        return BUY == side ? buySide : sellSide;
+    }
+
+    // removes the order from the book and its level, null if it was not there
+    private Order remove(long orderId) {
+        return remove(orderId, null);
+    }
+
+    // same as above but only if the order is still equal to the expected one, unless that is null
+    private Order remove(long orderId, Order expected) {
+        Order order = orders.get(orderId);
+        if(null == order){
+            return null;
+        }
+        // amending keeps the side, so this is the lock of the order whatever happens to it in the meantime
+        Side side = side(order.getSide());
+        long stamp = side.lock.writeLock();
+        try {
+            // another thread may have cancelled or amended it in the meantime
+            order = orders.get(orderId);
+            if(null == order || (null != expected && !expected.equals(order))){
+                return null;
+            }
+            orders.remove(orderId);
+            orderCount.decrement();
+            side.levels.remove(order.getPrice(), order.getQuantityUnits());
+            side.changed(order.getPrice());
+        }
+        finally {
+            side.lock.unlockWrite(stamp);
+        }
+        return order;
+    }
+
+    private BatchResult apply(Collection<Order> ordersToAdd, Collection<Long> orderIdsToCancel) {
+        Map<Long, Order> identifiedOrders = new LinkedHashMap<>();
+        for(Order order : ordersToAdd){
+            identifiedOrders.put(nextOrderId.getAndIncrement(), order);
+        }
+        return apply(identifiedOrders, orderIdsToCancel);
+    }
+
+    // both sides are locked for the whole batch so that readers see all of it or none of it
+    private BatchResult apply(Map<Long, Order> ordersToAdd, Collection<Long> orderIdsToCancel) {
+        LevelDeltas deltas = new LevelDeltas();
+        BatchResult result = new BatchResult(ordersToAdd.keySet());
+        List<Long> cancelledOrderIds = new ArrayList<>(orderIdsToCancel.size());
+        List<Order> cancelledOrders = new ArrayList<>(orderIdsToCancel.size());
+        long buyStamp = buySide.lock.writeLock();
+        long sellStamp = sellSide.lock.writeLock();
+        try {
+            for(Map.Entry<Long, Order> order : ordersToAdd.entrySet()){
+                if(null != orders.putIfAbsent(order.getKey(), order.getValue())){
+                    throw new IllegalStateException("Order id " + order.getKey() + " is already in use!");
+                }
+                deltas.added(order.getValue());
+            }
+            for(long orderId : orderIdsToCancel){
+                Order order = orders.remove(orderId);
+                if(null != order){
+                    deltas.removed(order);
+                    cancelledOrderIds.add(orderId);
+                    cancelledOrders.add(order);
+                }
+            }
+            orderCount.add(ordersToAdd.size() - cancelledOrders.size());
+            for(Side side : Arrays.asList(buySide, sellSide)){
+                if(deltas.touches(side.side)){
+                    deltas.applyTo(side.side, side.levels, publisher);
+                    side.changed();
+                }
+            }
+        }
+        finally {
+            sellSide.lock.unlockWrite(sellStamp);
+            buySide.lock.unlockWrite(buyStamp);
+        }
+        for(Map.Entry<Long, Order> order : ordersToAdd.entrySet()){
+            index(order.getValue(), order.getKey());
+        }
+        for(int i = 0; i < cancelledOrders.size(); i++){
+            unindex(cancelledOrders.get(i), cancelledOrderIds.get(i));
+        }
+        result.cancelledOrders = cancelledOrders.size();
+        return result;
+    }
+
+    // indexed after the order is in the book, a cancel racing with this may leave a stale id which is skipped
+    private void index(Order order, long orderId) {
+        orderIds.compute(order, (o, ids) -> {
+            Set<Long> orderIds = null == ids ? new LinkedHashSet<>() : ids;
+            orderIds.add(orderId);
+            return orderIds;
+        });
+        traderOrderIds.compute(order.getTrader(), (t, ids) -> {
+            Set<Long> traderIds = null == ids ? new ConcurrentSkipListSet<>() : ids;
+            traderIds.add(orderId);
+            return traderIds;
+        });
+    }
+
+    private void unindex(Order order, long orderId) {
+        orderIds.computeIfPresent(order, (o, ids) -> {
+            ids.remove(orderId);
+            return ids.isEmpty() ? null : ids;
+        });
+        unindex(order.getTrader(), orderId);
+    }
+
+    private void unindex(String trader, long orderId) {
+        traderOrderIds.computeIfPresent(trader, (t, ids) -> {
+            ids.remove(orderId);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    private static final class BatchResult {
+        private final List<Long> addedOrderIds;
+        private int cancelledOrders;
+
+        private BatchResult(Collection<Long> addedOrderIds) {
+            this.addedOrderIds = new ArrayList<>(addedOrderIds);
+        }
+    }
+
+    private final class Side {
+        private final OrderSide side;
+        private final StampedLock lock = new StampedLock();
+        private final PriceLadder levels;
+        // only changed holding the write lock
+        private volatile long version;
+        private volatile int levelCount;
+        private volatile AggregatedOrder best; // null while the side is empty
+
+        private Side(OrderSide side) {
+            this.side = side;
+            this.levels = new PriceLadder(side);
+        }
+
+        // to be called holding the lock so that changes of one side are published in order
+        private void changed(long price) {
+            publisher.publish(side, price, levels.quantity(price));
+            changed();
+        }
+
+        private void changed() {
+            version++;
+            levelCount = levels.size();
+            if(levels.isEmpty()){
+                best = null;
+                return;
+            }
+            long price = levels.priceAt(0);
+            long quantity = levels.quantityAt(0);
+            AggregatedOrder current = best;
+            if(null == current || current.getPrice() != price || current.getQuantityUnits() != quantity){
+                best = AggregatedOrder.ofUnits(side, price, quantity);
+            }
+        }
+
+        // runs the read on the ladder without blocking writers, taken again if a writer got in the way and under the
+        // read lock once that happened OPTIMISTIC_READS times
+        private <T> T read(Function<PriceLadder, T> read) {
+            for(int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+                long stamp = lock.tryOptimisticRead();
+                if(stamp == 0){
+                    Thread.onSpinWait();
+                    continue;
+                }
+                try {
+                    T result = read.apply(levels);
+                    if(lock.validate(stamp)){
+                        return result;
+                    }
+                }
+                catch(RuntimeException e){
+                    // a read torn by a writer may fail in any way, anything else is a bug
+                    if(lock.validate(stamp)){
+                        throw e;
+                    }
+                }
+            }
+            long stamp = lock.readLock();
+            try {
+                return read.apply(levels);
+            }
+            finally {
+                lock.unlockRead(stamp);
+            }
+        }
+    }
+
+    // the ladders are frozen copies, only there for the depth queries
+    // buyVersion and sellVersion are the versions of the sides it was built from, each write bumps one of them, so
+    // their sum is the version of the snapshot, which wraps the same level lists
+    private static final class Board {
+        private static final Board EMPTY = new Board(Collections.emptyList(), Collections.emptyList(),
+                                                     new PriceLadder(BUY), new PriceLadder(SELL), 0, 0);
+
+        private final List<AggregatedOrder> buyLevels;
+        private final List<AggregatedOrder> sellLevels;
+        private final PriceLadder buyLadder;
+        private final PriceLadder sellLadder;
+        private final BoardSnapshot snapshot;
+        private final long buyVersion;
+        private final long sellVersion;
+
+        private Board(List<AggregatedOrder> buyLevels, List<AggregatedOrder> sellLevels,
+                      PriceLadder buyLadder, PriceLadder sellLadder, long buyVersion, long sellVersion) {
+            this.buyLevels = buyLevels;
+            this.sellLevels = sellLevels;
+            this.buyLadder = buyLadder;
+            this.sellLadder = sellLadder;
+            this.snapshot = new BoardSnapshot(buyVersion + sellVersion, buyLevels, sellLevels);
+            this.buyVersion = buyVersion;
+            this.sellVersion = sellVersion;
+        }
+
+        // board of the sides at the given versions, only the sides that changed are copied
+        // to be validated against the side locks unless they are held
+        private Board with(Side buySide, Side sellSide, long newBuyVersion, long newSellVersion) {
+            PriceLadder newBuyLadder = buyVersion != newBuyVersion ? buySide.levels.copy() : buyLadder;
+            PriceLadder newSellLadder = sellVersion != newSellVersion ? sellSide.levels.copy() : sellLadder;
+            return new Board(newBuyLadder == buyLadder ? buyLevels : Collections.unmodifiableList(newBuyLadder.levels()),
+                             newSellLadder == sellLadder ? sellLevels : Collections.unmodifiableList(newSellLadder.levels()),
+                             newBuyLadder, newSellLadder, newBuyVersion, newSellVersion);
+        }
+
+        private PriceLadder ladder(OrderSide side) {
+            return BUY == side ? buyLadder : sellLadder;
+        }
+    }
+}
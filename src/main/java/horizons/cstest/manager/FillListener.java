@@ -0,0 +1,9 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Fill;
+
+public interface FillListener {
+
+    // called on the thread adding the crossing order, before addOrder returns
+    void onFill(Fill fill);
+}
@@ -0,0 +1,162 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+// Passes every call on to another book, for decorators to override only the calls they are interested in.
+public abstract class ForwardingOrderBook implements OrderBook {
+    protected final OrderBook delegate;
+
+    protected ForwardingOrderBook(OrderBook delegate) {
+        if(delegate == null){
+            throw new IllegalArgumentException("Check delegate argument!");
+        }
+        this.delegate = delegate;
+    }
+
+    @Override
+    public long addOrder(Order order){
+        return delegate.addOrder(order);
+    }
+
+    @Override
+    public boolean cancelOrder(long orderId){
+        return delegate.cancelOrder(orderId);
+    }
+
+    @Override
+    public boolean cancelOrder(Order order){
+        return delegate.cancelOrder(order);
+    }
+
+    @Override
+    public boolean amendOrder(long orderId, long price, double quantity){
+        return delegate.amendOrder(orderId, price, quantity);
+    }
+
+    @Override
+    public List<Long> addOrders(Collection<Order> orders){
+        return delegate.addOrders(orders);
+    }
+
+    @Override
+    public int cancelOrders(Collection<Long> orderIds){
+        return delegate.cancelOrders(orderIds);
+    }
+
+    @Override
+    public List<Long> applyBatch(OrderBatch batch){
+        return delegate.applyBatch(batch);
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedBuyOrders(){
+        return delegate.getAggregatedBuyOrders();
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedSellOrders(){
+        return delegate.getAggregatedSellOrders();
+    }
+
+    @Override
+    public List<AggregatedOrder> getAllAggregatedOrders(){
+        return delegate.getAllAggregatedOrders();
+    }
+
+    @Override
+    public BoardSnapshot getBoardSnapshot(){
+        return delegate.getBoardSnapshot();
+    }
+
+    @Override
+    public AggregatedOrder getBestBid(){
+        return delegate.getBestBid();
+    }
+
+    @Override
+    public AggregatedOrder getBestOffer(){
+        return delegate.getBestOffer();
+    }
+
+    @Override
+    public Long getSpread(){
+        return delegate.getSpread();
+    }
+
+    @Override
+    public List<AggregatedOrder> getTopLevels(OrderSide side, int n){
+        return delegate.getTopLevels(side, n);
+    }
+
+    @Override
+    public double getDepthWithin(OrderSide side, long priceRange){
+        return delegate.getDepthWithin(side, priceRange);
+    }
+
+    @Override
+    public Double getVwapForQuantity(OrderSide side, double quantity){
+        return delegate.getVwapForQuantity(side, quantity);
+    }
+
+    @Override
+    public List<AggregatedOrder> getCumulativeDepth(OrderSide side){
+        return delegate.getCumulativeDepth(side);
+    }
+
+    @Override
+    public List<Order> getOrders(){
+        return delegate.getOrders();
+    }
+
+    @Override
+    public int getOrderCount(){
+        return delegate.getOrderCount();
+    }
+
+    @Override
+    public int getLevelCount(OrderSide side){
+        return delegate.getLevelCount(side);
+    }
+
+    @Override
+    public Order getOrder(long orderId){
+        return delegate.getOrder(orderId);
+    }
+
+    @Override
+    public List<Order> getOrdersForTrader(String trader){
+        return delegate.getOrdersForTrader(trader);
+    }
+
+    @Override
+    public int cancelAllForTrader(String trader){
+        return delegate.cancelAllForTrader(trader);
+    }
+
+    @Override
+    public void restoreOrders(Map<Long, Order> orders, long nextOrderId){
+        delegate.restoreOrders(orders, nextOrderId);
+    }
+
+    @Override
+    public void forEachOrder(OrderVisitor visitor){
+        delegate.forEachOrder(visitor);
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor){
+        return delegate.subscribe(listener, executor);
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor, int capacity){
+        return delegate.subscribe(listener, executor, capacity);
+    }
+}
@@ -0,0 +1,101 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+
+import java.util.*;
+
+/*
+ Orders are indexed by an id assigned when they are added so that cancelling does not need to scan the book.
+ Equal orders (same side, price, quantity and trader) may rest more than once, hence the ids kept per order,
+ oldest first, so that cancelling by order still removes the first one added just like List.remove did.
+ Ids are also kept per trader so that a trader's orders can be found without going through the whole book.
+ * */
+class HeapOrderStore implements OrderStore {
+    private final Map<Long, Order> orders = new LinkedHashMap<>();
+    private final Map<Order, Set<Long>> orderIds = new HashMap<>(); // insertion ordered, so oldest first
+    private final Map<String, Set<Long>> traderOrderIds = new HashMap<>();
+
+    @Override
+    public void put(long orderId, Order order) {
+        orders.put(orderId, order);
+        orderIds.computeIfAbsent(order, o -> new LinkedHashSet<>()).add(orderId);
+        traderOrderIds.computeIfAbsent(order.getTrader(), t -> new LinkedHashSet<>()).add(orderId);
+    }
+
+    @Override
+    public Order remove(long orderId) {
+        Order order = orders.remove(orderId);
+        if(null != order){
+            unindex(order, orderId);
+            Set<Long> traderIds = traderOrderIds.get(order.getTrader());
+            traderIds.remove(orderId);
+            if(traderIds.isEmpty()){
+                traderOrderIds.remove(order.getTrader());
+            }
+        }
+        return order;
+    }
+
+    @Override
+    public Order get(long orderId) {
+        return orders.get(orderId);
+    }
+
+    @Override
+    public boolean contains(long orderId) {
+        return orders.containsKey(orderId);
+    }
+
+    @Override
+    public void replace(long orderId, Order order) {
+        Order replaced = orders.put(orderId, order); // the key is there already, so it keeps its place
+        unindex(replaced, orderId);
+        orderIds.computeIfAbsent(order, o -> new LinkedHashSet<>()).add(orderId);
+    }
+
+    @Override
+    public long oldestEqual(Order order) {
+        Set<Long> ids = orderIds.get(order);
+        return null == ids ? 0 : ids.iterator().next();
+    }
+
+    @Override
+    public List<Long> orderIdsOf(String trader) {
+        return new ArrayList<>(traderOrderIds.getOrDefault(trader, Collections.emptySet()));
+    }
+
+    @Override
+    public List<Order> ordersOf(String trader) {
+        Set<Long> ids = traderOrderIds.getOrDefault(trader, Collections.emptySet());
+        List<Order> traderOrders = new ArrayList<>(ids.size());
+        for(long orderId : ids){
+            traderOrders.add(orders.get(orderId));
+        }
+        return traderOrders;
+    }
+
+    @Override
+    public List<Order> orders() {
+        return new ArrayList<>(orders.values());
+    }
+
+    @Override
+    public void forEach(OrderVisitor visitor) {
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            visitor.visit(order.getKey(), order.getValue());
+        }
+    }
+
+    @Override
+    public int size() {
+        return orders.size();
+    }
+
+    private void unindex(Order order, long orderId) {
+        Set<Long> ids = orderIds.get(order);
+        ids.remove(orderId);
+        if(ids.isEmpty()){
+            orderIds.remove(order);
+        }
+    }
+}
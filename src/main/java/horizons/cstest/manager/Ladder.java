@@ -0,0 +1,42 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+
+import java.util.List;
+
+// Aggregated price levels of one side of the book as SimpleOrderBook uses them, quantities in grams.
+// Levels are numbered in board order, 0 being the best price (highest for buy, lowest for sell).
+interface Ladder {
+
+    void add(long price, long quantity);
+
+    // returns false if there is no level at this price
+    boolean remove(long price, long quantity);
+
+    // aggregated quantity at this price, 0 if there is no such level
+    long quantity(long price);
+
+    int size();
+
+    boolean isEmpty();
+
+    long priceAt(int level);
+
+    AggregatedOrder levelAt(int level);
+
+    List<AggregatedOrder> levels();
+
+    // best n levels in board order
+    List<AggregatedOrder> levels(int n);
+
+    void addLevelsTo(List<AggregatedOrder> levels, int n);
+
+    // total quantity of the levels at most priceRange away from the best price
+    long depthWithin(long priceRange);
+
+    // average price of taking the quantity from the best levels on, null if the side holds less than that
+    Double vwap(long quantity);
+
+    // levels in board order, each holding its own quantity plus that of all better levels
+    List<AggregatedOrder> cumulativeLevels();
+}
@@ -0,0 +1,10 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.LevelChange;
+
+public interface LevelChangeListener {
+
+    // called on the subscription's executor: with a direct one such as Runnable::run that is the thread that changed
+    // the book, inside its write, otherwise some other thread
+    void onLevelChange(LevelChange change);
+}
@@ -0,0 +1,31 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.LevelChange;
+import horizons.cstest.model.OrderSide;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+// Hands level changes over to the subscriptions of a book, costs nothing beyond a size check while nobody listens.
+class LevelChangePublisher {
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    Subscription subscribe(LevelChangeListener listener, Executor executor, int capacity) {
+        Subscription[] subscription = new Subscription[1];
+        subscription[0] = new Subscription(listener, executor, capacity, () -> subscriptions.remove(subscription[0]));
+        subscriptions.add(subscription[0]);
+        return subscription[0];
+    }
+
+    // quantity in grams, 0 when the level went away
+    void publish(OrderSide side, long price, long quantity) {
+        if(subscriptions.isEmpty()){
+            return;
+        }
+        LevelChange change = new LevelChange(side, price, quantity);
+        for(Subscription subscription : subscriptions){
+            subscription.offer(change);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Net quantity change per side and price over a batch, so that each level touched by the batch is updated once.
+class LevelDeltas {
+    private final Map<Long, Long> buyDeltas = new HashMap<>();
+    private final Map<Long, Long> sellDeltas = new HashMap<>();
+
+    void added(Order order) {
+        merge(order.getSide(), order.getPrice(), order.getQuantityUnits());
+    }
+
+    void removed(Order order) {
+        merge(order.getSide(), order.getPrice(), -order.getQuantityUnits());
+    }
+
+    // false if the batch leaves this side as it was
+    boolean touches(OrderSide side) {
+        return !deltas(side).isEmpty();
+    }
+
+    void applyTo(OrderSide side, Ladder levels, LevelChangePublisher publisher) {
+        for(Map.Entry<Long, Long> delta : deltas(side).entrySet()) {
+            long price = delta.getKey();
+            if(delta.getValue() > 0) {
+                levels.add(price, delta.getValue());
+            }
+            else {
+                levels.remove(price, -delta.getValue());
+            }
+            publisher.publish(side, price, levels.quantity(price));
+        }
+    }
+
+    private void merge(OrderSide side, long price, long quantity) {
+        // a level whose changes cancel each other out is dropped
+        deltas(side).merge(price, quantity, (previous, change) -> previous + change == 0 ? null : previous + change);
+    }
+
+    private Map<Long, Long> deltas(OrderSide side) {
+        return OrderSide.BUY == side ? buyDeltas : sellDeltas;
+    }
+}
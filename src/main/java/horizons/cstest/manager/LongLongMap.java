@@ -0,0 +1,110 @@
+package horizons.cstest.manager;
+
+/*
+ Map from positive long keys to long values held in two primitive arrays, so an entry costs 16 bytes and no object.
+ Open addressing with linear probing, kept at most half full. Removal shifts the following entries of the probe
+ sequence back rather than leaving tombstones behind. Used for the slots of OffHeapOrderStore and the ids of
+ OrderReplay, hence public. Not thread safe.
+ * */
+public class LongLongMap {
+    private static final long EMPTY = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    public LongLongMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while(capacity < expectedSize * 2 && capacity < 1 << 30) {
+            capacity <<= 1;
+        }
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public long get(long key, long missing) {
+        if(key <= 0) {
+            return missing; // never a key, and 0 would match an empty slot
+        }
+        for(int slot = slot(key); ; slot = (slot + 1) & mask) {
+            if(keys[slot] == key) {
+                return values[slot];
+            }
+            if(keys[slot] == EMPTY) {
+                return missing;
+            }
+        }
+    }
+
+    public void put(long key, long value) {
+        if(key <= 0) {
+            throw new IllegalArgumentException("Check key argument!");
+        }
+        if((size + 1) * 2 > keys.length) {
+            resize();
+        }
+        int slot = slot(key);
+        while(keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if(keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    // returns the value the key had, missing if there was none
+    public long remove(long key, long missing) {
+        if(key <= 0) {
+            return missing;
+        }
+        int slot = slot(key);
+        while(keys[slot] != key) {
+            if(keys[slot] == EMPTY) {
+                return missing;
+            }
+            slot = (slot + 1) & mask;
+        }
+        long value = values[slot];
+        // move back any later entry whose home slot would no longer reach it past the hole
+        int hole = slot;
+        for(int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if(hole <= next ? (home <= hole || home > next) : (home <= hole && home > next)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = EMPTY;
+        size--;
+        return value;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for(int i = 0; i < oldKeys.length; i++) {
+            if(oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+}
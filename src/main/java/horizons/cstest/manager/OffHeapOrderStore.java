@@ -0,0 +1,484 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import horizons.cstest.model.TraderRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ Orders kept outside the heap in fixed 56 byte slots, so a resting order costs the collector nothing:
+   0  order id          long
+   8  price             long
+  16  quantity          long, in grams
+  24  trader id         int, in the store's own registry
+  28  side             int
+  32  previous / next   int slots, all orders in the order they were added
+  40  previous / next   int slots, orders of the same trader in the order they were added
+  48  previous / next   int slots, equal orders (same side, price, quantity and trader) in the order they were added
+ Slots live in chunks of direct memory, or of a memory-mapped file, allocated as the book grows. The slot of a
+ cancelled order goes on a free list, linked through its next field, and is the first to be reused.
+ On the heap there is only a primitive map from order id to slot, the head and tail slot of each trader and an open
+ addressing table of the head and tail slot and hash of each run of equal orders, keyed by the fields of its head slot.
+ Traders get ids of the store's own, so that a trader without an id in Order.traders() has a slot like any other, and
+ those are mapped to and from the shared ids with int arrays. Order instances are created on the way out only.
+ The memory or file is let go by close.
+ * */
+class OffHeapOrderStore implements OrderStore {
+    static final int SLOT_SIZE = 56;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int SLOTS_PER_CHUNK = 1 << CHUNK_SHIFT;
+    private static final int ORDER_ID = 0;
+    private static final int PRICE = 8;
+    private static final int QUANTITY = 16;
+    private static final int TRADER = 24;
+    private static final int SIDE = 28;
+    private static final int PREVIOUS = 32;
+    private static final int NEXT = 36;
+    private static final int TRADER_PREVIOUS = 40;
+    private static final int TRADER_NEXT = 44;
+    private static final int EQUAL_PREVIOUS = 48;
+    private static final int EQUAL_NEXT = 52;
+    private static final int MIN_EQUAL_CAPACITY = 16;
+    private static final int NONE = -1;
+    private static final OrderSide[] SIDES = OrderSide.values();
+
+    private final FileChannel file; // null when slots are in direct memory
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final LongLongMap slots = new LongLongMap(SLOTS_PER_CHUNK);
+    private final TraderRegistry traders = new TraderRegistry();
+    private int[] sharedTraderIds = new int[0]; // by id in the store, -1 for a trader without one in Order.traders()
+    private int[] traderIds = new int[0]; // by id in Order.traders(), NONE for a trader not in the store yet
+    private int[] traderHeads = new int[0];
+    private int[] traderTails = new int[0];
+    private int[] equalHeads = grow(new int[0], MIN_EQUAL_CAPACITY); // NONE where empty, kept at most half full
+    private int[] equalTails = new int[MIN_EQUAL_CAPACITY];
+    private int[] equalHashes = new int[MIN_EQUAL_CAPACITY];
+    private int equalRuns;
+    private int head = NONE;
+    private int tail = NONE;
+    private int freeSlots = NONE;
+    private int usedSlots; // slots ever handed out, free ones included
+    private int size;
+
+    OffHeapOrderStore() {
+        this.file = null;
+    }
+
+    // the file is kept open for as long as the store is used, its previous content is overwritten
+    OffHeapOrderStore(Path file) {
+        try {
+            this.file = FileChannel.open(file, CREATE, READ, WRITE);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void put(long orderId, Order order) {
+        if(slots.get(orderId, NONE) != NONE){
+            throw new IllegalStateException("Order id " + orderId + " is already in use!");
+        }
+        int trader = register(order);
+        int slot = allocate();
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + ORDER_ID, orderId);
+        chunk.putLong(offset + PRICE, order.getPrice());
+        chunk.putLong(offset + QUANTITY, order.getQuantityUnits());
+        chunk.putInt(offset + TRADER, trader);
+        chunk.putInt(offset + SIDE, order.getSide().ordinal());
+
+        chunk.putInt(offset + PREVIOUS, tail);
+        chunk.putInt(offset + NEXT, NONE);
+        if(tail != NONE){
+            setInt(tail, NEXT, slot);
+        }
+        else {
+            head = slot;
+        }
+        tail = slot;
+
+        chunk.putInt(offset + TRADER_PREVIOUS, traderTails[trader]);
+        chunk.putInt(offset + TRADER_NEXT, NONE);
+        if(traderTails[trader] != NONE){
+            setInt(traderTails[trader], TRADER_NEXT, slot);
+        }
+        else {
+            traderHeads[trader] = slot;
+        }
+        traderTails[trader] = slot;
+
+        linkEqual(slot);
+        slots.put(orderId, slot);
+        size++;
+    }
+
+    @Override
+    public Order remove(long orderId) {
+        int slot = (int) slots.remove(orderId, NONE);
+        if(slot == NONE){
+            return null;
+        }
+        Order order = view(slot);
+        unlinkEqual(slot);
+        int previous = getInt(slot, PREVIOUS);
+        int next = getInt(slot, NEXT);
+        if(previous != NONE){
+            setInt(previous, NEXT, next);
+        }
+        else {
+            head = next;
+        }
+        if(next != NONE){
+            setInt(next, PREVIOUS, previous);
+        }
+        else {
+            tail = previous;
+        }
+
+        int trader = getInt(slot, TRADER);
+        int traderPrevious = getInt(slot, TRADER_PREVIOUS);
+        int traderNext = getInt(slot, TRADER_NEXT);
+        if(traderPrevious != NONE){
+            setInt(traderPrevious, TRADER_NEXT, traderNext);
+        }
+        else {
+            traderHeads[trader] = traderNext;
+        }
+        if(traderNext != NONE){
+            setInt(traderNext, TRADER_PREVIOUS, traderPrevious);
+        }
+        else {
+            traderTails[trader] = traderPrevious;
+        }
+
+        setInt(slot, NEXT, freeSlots);
+        freeSlots = slot;
+        size--;
+        return order;
+    }
+
+    @Override
+    public Order get(long orderId) {
+        int slot = (int) slots.get(orderId, NONE);
+        return slot == NONE ? null : view(slot);
+    }
+
+    @Override
+    public boolean contains(long orderId) {
+        return slots.get(orderId, NONE) != NONE;
+    }
+
+    @Override
+    public void replace(long orderId, Order order) {
+        int slot = (int) slots.get(orderId, NONE);
+        unlinkEqual(slot);
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        chunk.putLong(offset + PRICE, order.getPrice());
+        chunk.putLong(offset + QUANTITY, order.getQuantityUnits());
+        linkEqual(slot); // last of its new run, as if just added
+    }
+
+    @Override
+    public long oldestEqual(Order order) {
+        int side = order.getSide().ordinal();
+        int trader = traderId(order);
+        if(trader == NONE){
+            return 0;
+        }
+        int head = equalHeads[equalIndex(equalHash(side, order.getPrice(), order.getQuantityUnits(), trader), side,
+                                         order.getPrice(), order.getQuantityUnits(), trader)];
+        return head == NONE ? 0 : chunk(head).getLong(offset(head) + ORDER_ID);
+    }
+
+    @Override
+    public List<Long> orderIdsOf(String trader) {
+        List<Long> orderIds = new ArrayList<>();
+        for(int slot = traderHead(trader); slot != NONE; slot = getInt(slot, TRADER_NEXT)){
+            orderIds.add(chunk(slot).getLong(offset(slot) + ORDER_ID));
+        }
+        return orderIds;
+    }
+
+    @Override
+    public List<Order> ordersOf(String trader) {
+        List<Order> orders = new ArrayList<>();
+        for(int slot = traderHead(trader); slot != NONE; slot = getInt(slot, TRADER_NEXT)){
+            orders.add(view(slot));
+        }
+        return orders;
+    }
+
+    @Override
+    public List<Order> orders() {
+        List<Order> orders = new ArrayList<>(size);
+        for(int slot = head; slot != NONE; slot = getInt(slot, NEXT)){
+            orders.add(view(slot));
+        }
+        return orders;
+    }
+
+    @Override
+    public void forEach(OrderVisitor visitor) {
+        for(int slot = head; slot != NONE; slot = getInt(slot, NEXT)){
+            visitor.visit(chunk(slot).getLong(offset(slot) + ORDER_ID), view(slot));
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // closes the file, direct memory and mappings go once the collector frees their buffers
+    @Override
+    public void close() {
+        chunks.clear();
+        if(null != file){
+            try {
+                file.close();
+            }
+            catch(IOException e){
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // slots taken from chunks so far, free ones included
+    int capacity() {
+        return chunks.size() * SLOTS_PER_CHUNK;
+    }
+
+    private int traderHead(String trader) {
+        int id = traders.id(trader);
+        return id < 0 ? NONE : traderHeads[id];
+    }
+
+    // id of the order's trader in the store, NONE if it has none yet
+    private int traderId(Order order) {
+        int shared = order.getTraderId();
+        if(shared >= 0){
+            return shared < traderIds.length ? traderIds[shared] : NONE;
+        }
+        int id = traders.id(order.getTrader());
+        return id < 0 ? NONE : id;
+    }
+
+    private int register(Order order) {
+        int id = traderId(order);
+        if(id != NONE){
+            return id;
+        }
+        id = traders.intern(order.getTrader());
+        if(id >= traderHeads.length){
+            int length = Math.max(16, traderHeads.length * 2);
+            traderHeads = grow(traderHeads, length);
+            traderTails = grow(traderTails, length);
+            sharedTraderIds = grow(sharedTraderIds, length);
+        }
+        int shared = order.getTraderId();
+        sharedTraderIds[id] = shared;
+        if(shared >= 0){
+            if(shared >= traderIds.length){
+                traderIds = grow(traderIds, Math.max(shared + 1, Math.max(16, traderIds.length * 2)));
+            }
+            traderIds[shared] = id;
+        }
+        return id;
+    }
+
+    // appends the slot to the run of orders equal to it, a new run if there is none
+    private void linkEqual(int slot) {
+        int hash = equalHash(slot);
+        int index = equalIndex(hash, slot);
+        setInt(slot, EQUAL_NEXT, NONE);
+        if(equalHeads[index] != NONE){
+            setInt(slot, EQUAL_PREVIOUS, equalTails[index]);
+            setInt(equalTails[index], EQUAL_NEXT, slot);
+            equalTails[index] = slot;
+            return;
+        }
+        setInt(slot, EQUAL_PREVIOUS, NONE);
+        equalHeads[index] = slot;
+        equalTails[index] = slot;
+        equalHashes[index] = hash;
+        if(++equalRuns * 2 > equalHeads.length){
+            resizeEqual();
+        }
+    }
+
+    private void unlinkEqual(int slot) {
+        int index = equalIndex(equalHash(slot), slot);
+        int previous = getInt(slot, EQUAL_PREVIOUS);
+        int next = getInt(slot, EQUAL_NEXT);
+        if(previous == NONE && next == NONE){
+            removeEqual(index);
+            return;
+        }
+        if(previous != NONE){
+            setInt(previous, EQUAL_NEXT, next);
+        }
+        else {
+            equalHeads[index] = next; // same key, so the run stays where it is in the table
+        }
+        if(next != NONE){
+            setInt(next, EQUAL_PREVIOUS, previous);
+        }
+        else {
+            equalTails[index] = previous;
+        }
+    }
+
+    private int equalIndex(int hash, int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        return equalIndex(hash, chunk.getInt(offset + SIDE), chunk.getLong(offset + PRICE),
+                          chunk.getLong(offset + QUANTITY), chunk.getInt(offset + TRADER));
+    }
+
+    // index of the run with that key, or of the empty entry where it would go
+    // head slots are only read when the hashes match, as most of them would be a cache miss
+    private int equalIndex(int hash, int side, long price, long quantity, int trader) {
+        int mask = equalHeads.length - 1;
+        for(int index = hash & mask; ; index = (index + 1) & mask){
+            int head = equalHeads[index];
+            if(head == NONE){
+                return index;
+            }
+            if(equalHashes[index] != hash){
+                continue;
+            }
+            ByteBuffer chunk = chunk(head);
+            int offset = offset(head);
+            if(chunk.getLong(offset + PRICE) == price && chunk.getLong(offset + QUANTITY) == quantity
+                    && chunk.getInt(offset + TRADER) == trader && chunk.getInt(offset + SIDE) == side){
+                return index;
+            }
+        }
+    }
+
+    // shifts later entries of the probe sequence back into the hole, as LongLongMap does
+    private void removeEqual(int hole) {
+        int mask = equalHeads.length - 1;
+        for(int next = (hole + 1) & mask; equalHeads[next] != NONE; next = (next + 1) & mask){
+            int home = equalHashes[next] & mask;
+            if(hole <= next ? (home <= hole || home > next) : (home <= hole && home > next)){
+                equalHeads[hole] = equalHeads[next];
+                equalTails[hole] = equalTails[next];
+                equalHashes[hole] = equalHashes[next];
+                hole = next;
+            }
+        }
+        equalHeads[hole] = NONE;
+        equalRuns--;
+    }
+
+    private void resizeEqual() {
+        int[] oldHeads = equalHeads;
+        int[] oldTails = equalTails;
+        int[] oldHashes = equalHashes;
+        equalHeads = grow(new int[0], oldHeads.length * 2);
+        equalTails = new int[oldHeads.length * 2];
+        equalHashes = new int[oldHeads.length * 2];
+        int mask = equalHeads.length - 1;
+        for(int i = 0; i < oldHeads.length; i++){
+            if(oldHeads[i] != NONE){
+                int index = oldHashes[i] & mask;
+                while(equalHeads[index] != NONE){
+                    index = (index + 1) & mask;
+                }
+                equalHeads[index] = oldHeads[i];
+                equalTails[index] = oldTails[i];
+                equalHashes[index] = oldHashes[i];
+            }
+        }
+    }
+
+    private int equalHash(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        return equalHash(chunk.getInt(offset + SIDE), chunk.getLong(offset + PRICE), chunk.getLong(offset + QUANTITY),
+                         chunk.getInt(offset + TRADER));
+    }
+
+    private static int equalHash(int side, long price, long quantity, int trader) {
+        long hash = ((price * 31 + quantity) * 31 + trader) * 2 + side;
+        hash *= 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private Order view(int slot) {
+        ByteBuffer chunk = chunk(slot);
+        int offset = offset(slot);
+        OrderSide side = SIDES[chunk.getInt(offset + SIDE)];
+        int trader = chunk.getInt(offset + TRADER);
+        int shared = sharedTraderIds[trader];
+        if(shared < 0){
+            return Order.ofUnits(side, chunk.getLong(offset + PRICE), chunk.getLong(offset + QUANTITY), traders.name(trader));
+        }
+        return Order.ofUnits(side, chunk.getLong(offset + PRICE), chunk.getLong(offset + QUANTITY), shared);
+    }
+
+    private int allocate() {
+        if(freeSlots != NONE){
+            int slot = freeSlots;
+            freeSlots = getInt(slot, NEXT);
+            return slot;
+        }
+        if(usedSlots == capacity()){
+            chunks.add(newChunk(chunks.size()));
+        }
+        return usedSlots++;
+    }
+
+    private ByteBuffer newChunk(int index) {
+        int chunkSize = SLOTS_PER_CHUNK * SLOT_SIZE;
+        if(null == file){
+            return ByteBuffer.allocateDirect(chunkSize).order(ByteOrder.nativeOrder());
+        }
+        try {
+            return file.map(FileChannel.MapMode.READ_WRITE, (long) index * chunkSize, chunkSize).order(ByteOrder.nativeOrder());
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ByteBuffer chunk(int slot) {
+        return chunks.get(slot >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int slot) {
+        return (slot & (SLOTS_PER_CHUNK - 1)) * SLOT_SIZE;
+    }
+
+    private int getInt(int slot, int field) {
+        return chunk(slot).getInt(offset(slot) + field);
+    }
+
+    private void setInt(int slot, int field, int value) {
+        chunk(slot).putInt(offset(slot) + field, value);
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] grown = Arrays.copyOf(array, length);
+        Arrays.fill(grown, array.length, length, NONE);
+        return grown;
+    }
+}
@@ -0,0 +1,38 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Orders to add and order ids to cancel, applied to the book at once by OrderBook.applyBatch
+public class OrderBatch {
+    private final List<Order> ordersToAdd = new ArrayList<>();
+    private final List<Long> orderIdsToCancel = new ArrayList<>();
+
+    public OrderBatch add(Order order){
+        if(order == null){
+            throw new IllegalArgumentException("Check order argument!");
+        }
+        ordersToAdd.add(order);
+        return this;
+    }
+
+    public OrderBatch cancel(long orderId){
+        orderIdsToCancel.add(orderId);
+        return this;
+    }
+
+    public List<Order> getOrdersToAdd(){
+        return Collections.unmodifiableList(ordersToAdd);
+    }
+
+    public List<Long> getOrderIdsToCancel(){
+        return Collections.unmodifiableList(orderIdsToCancel);
+    }
+
+    public boolean isEmpty(){
+        return ordersToAdd.isEmpty() && orderIdsToCancel.isEmpty();
+    }
+}
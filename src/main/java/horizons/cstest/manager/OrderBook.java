@@ -4,182 +4,94 @@ import horizons.cstest.model.AggregatedOrder;
 import horizons.cstest.model.Order;
 import horizons.cstest.model.OrderSide;
 
-import java.util.*;
-
-import static horizons.cstest.model.OrderSide.BUY;
-import static horizons.cstest.model.OrderSide.SELL;
-
-public class OrderBook {
-    private final List<Order> orders = new LinkedList<>();
-    /*
-     Based on assumption there is more frequent request for a view of order book than order book manipulation(add/remove),
-     updated maps of sell and buy aggregated orders are maintained.
-     Otherwise it would have been better to maintain just the list of plain orders and then compute aggregated orders on
-     the fly using streams when requested.
-     Added/Removed could also be used as callbacks on a Listenable orders list to update aggregated maps.
-
-     Could have used treemap for maps with suitable comparator to have them always sorted.
-     * */
-    private final Map<Long, AggregatedOrder> aggregatedBuyOrders = new HashMap<>();
-    private final Map<Long, AggregatedOrder> aggregatedSellOrders = new HashMap<>();
-
-
-    public void addOrder(Order order){
-        orders.add(order);
-        added(order);
-    }
-
-    public void cancelOrder(Order order){
-        orders.remove(order);
-        removed(order);
-    }
-
-    public List<AggregatedOrder> getAggregatedBuyOrders(){ // descending order
-        List<AggregatedOrder> aggregatedOrders = new ArrayList<>(aggregatedBuyOrders.values());
-        aggregatedOrders.sort(Comparator.comparing(AggregatedOrder::getPrice).reversed());
-        return aggregatedOrders;
-    }
-
-    public List<AggregatedOrder> getAggregatedSellOrders(){ //
-        List<AggregatedOrder> aggregatedOrders = new ArrayList<>(aggregatedSellOrders.values());
-        aggregatedOrders.sort(Comparator.comparing(AggregatedOrder::getPrice));
-        return aggregatedOrders;
-    }
-
-    public List<AggregatedOrder> getAllAggregatedOrders(){ //
-        List<AggregatedOrder> aggregatedOrders = getAggregatedBuyOrders();
-        aggregatedOrders.addAll(getAggregatedSellOrders());
-        return aggregatedOrders;
-    }
-
-    public List<Order> getOrders(){
-        return Collections.unmodifiableList(orders);
-    }
-
-    // this can be implemented for a callback when using listenable list
-    private void added(Order order) {
-        AggregatedOrder aggregatedOrder = null;
-        Map<Long, AggregatedOrder> aggregatedOrders = null;
-        if(OrderSide.BUY == order.getSide()) {
-            aggregatedOrder = aggregatedBuyOrders.get(order.getPrice());
-            aggregatedOrders = aggregatedBuyOrders;
-        }
-        else {
-            aggregatedOrder = aggregatedSellOrders.get(order.getPrice());
-            aggregatedOrders = aggregatedSellOrders;
-        }
-        // we shall not have an entry where we add null value against a price
-        if(null == aggregatedOrder) {
-            aggregatedOrders.put(order.getPrice(), new AggregatedOrder(order.getSide(), order.getPrice(), order.getQuantity()));
-        }
-        else{
-            aggregatedOrders.put(order.getPrice(), new AggregatedOrder(order.getSide(),
-                                                        order.getPrice(),
-                                                aggregatedOrder.getQuantity() + order.getQuantity()));
-        }
-    }
-
-    // this can be implemented for a callback when using listenable list
-    private void removed(Order order) {
-        AggregatedOrder aggregatedOrder = null;
-        Map<Long, AggregatedOrder> aggregatedOrders = null;
-        if(OrderSide.BUY == order.getSide()) {
-            aggregatedOrder = aggregatedBuyOrders.get(order.getPrice());
-            aggregatedOrders = aggregatedBuyOrders;
-        }
-        else {
-            aggregatedOrder = aggregatedSellOrders.get(order.getPrice());
-            aggregatedOrders = aggregatedSellOrders;
-        }
-        // we shall not have an entry where we add null value against a price
-        if(null == aggregatedOrder) {
-            // do nothing, theoretically this won't happen
-        }
-        else{
-            if(aggregatedOrder.getQuantity() == order.getQuantity()){
-                // remove since this was the only remaining order
-                aggregatedOrders.remove(aggregatedOrder.getPrice());
-            }
-            else {
-                aggregatedOrders.put(order.getPrice(), new AggregatedOrder(order.getSide(),
-                                                            order.getPrice(),
-                                                    aggregatedOrder.getQuantity() - order.getQuantity()));
-            }
-        }
-    }
-
-    /* following is for demo purposes only */
-    public static void main(String[] args){
-        Order sellOrder1, sellOrder2, sellOrder3, sellOrder4;
-        Order buyOrder1, buyOrder2, buyOrder3, buyOrder4;
-
-        sellOrder1 = new Order(SELL, 306, 3.5, "user1");
-        sellOrder2 = new Order(SELL, 310, 1.2, "user2");
-        sellOrder3 = new Order(SELL, 307, 4.0, "user1");
-        sellOrder4 = new Order(SELL, 306, 1.5, "user3");
-
-        buyOrder1 = new Order(BUY, 305, 3.5, "user1");
-        buyOrder2 = new Order(BUY, 307, 4.0, "user1");
-        buyOrder3 = new Order(BUY, 305, 2.5, "user3");
-        buyOrder4 = new Order(BUY, 304, 6.2, "user2");
-
-        OrderBook orderBook = new OrderBook();
-        orderBook.addOrder(sellOrder1);
-        System.out.println("Added " + sellOrder1);
-        orderBook.addOrder(sellOrder2);
-        System.out.println("Added " + sellOrder2);
-        orderBook.addOrder(sellOrder3);
-        System.out.println("Added " + sellOrder3);
-        orderBook.addOrder(buyOrder1);
-        System.out.println("Added " + buyOrder1);
-        orderBook.addOrder(buyOrder2);
-        System.out.println("Added " + buyOrder2);
-        orderBook.addOrder(buyOrder4);
-        System.out.println("Added " + buyOrder4);
-        printOrderBookStatus(orderBook);
-
-        orderBook.addOrder(sellOrder4);
-        System.out.println("Added " + sellOrder4);
-        orderBook.addOrder(buyOrder3);
-        System.out.println("Added " + buyOrder3);
-        printOrderBookStatus(orderBook);
-
-        orderBook.cancelOrder(sellOrder1);
-        System.out.println("Removed " + sellOrder1);
-        orderBook.cancelOrder(buyOrder1);
-        System.out.println("Removed " + buyOrder1);
-        printOrderBookStatus(orderBook);
-
-        final long startTime = System.nanoTime();
-        for (int i = 0; i< 1000000; i++){
-            orderBook.addOrder(sellOrder1);
-            orderBook.addOrder(sellOrder2);
-            orderBook.addOrder(sellOrder3);
-            orderBook.addOrder(sellOrder4);
-            orderBook.addOrder(buyOrder1);
-            orderBook.addOrder(buyOrder2);
-            orderBook.addOrder(buyOrder3);
-            orderBook.addOrder(buyOrder4);
-        }
-        printOrderBookStatus(orderBook);
-        for (int i = 0; i< 10000; i++){
-            orderBook.cancelOrder(sellOrder1);
-            orderBook.cancelOrder(buyOrder1);
-            orderBook.cancelOrder(buyOrder2);
-            orderBook.cancelOrder(buyOrder3);
-        }
-        printOrderBookStatus(orderBook);
-        System.out.printf(System.nanoTime() - startTime + "");
-    }
-
-    private static void printOrderBookStatus(OrderBook orderBook){
-        System.out.println("\nLive Order Board");
-        System.out.println("BUY ORDERS");
-        orderBook.getAggregatedBuyOrders().stream().forEach(System.out::println);
-        System.out.println("SELL ORDERS");
-        orderBook.getAggregatedSellOrders().stream().forEach(System.out::println);
-        System.out.println("END\n");
-    }
-}
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+public interface OrderBook {
+
+    // returns the id the order can later be cancelled with
+    long addOrder(Order order);
+
+    // returns false if there is no such order in the book
+    boolean cancelOrder(long orderId);
+
+    // cancels the oldest resting order equal to the given one
+    boolean cancelOrder(Order order);
+
+    // changes the price and quantity in kg of a resting order in one step, it keeps its id, side and trader
+    // returns false if there is no such order in the book
+    boolean amendOrder(long orderId, long price, double quantity);
+
+    // returns the ids of the added orders in the same order, each price level is updated once for the whole batch
+    List<Long> addOrders(Collection<Order> orders);
+
+    // returns how many of the orders were in the book and got cancelled
+    int cancelOrders(Collection<Long> orderIds);
+
+    // applies all adds and cancels at once, quantities are netted per side and price before the levels are updated
+    // returns the ids of the added orders
+    List<Long> applyBatch(OrderBatch batch);
+
+    List<AggregatedOrder> getAggregatedBuyOrders(); // descending order
+
+    List<AggregatedOrder> getAggregatedSellOrders(); // ascending order
+
+    List<AggregatedOrder> getAllAggregatedOrders(); // buy orders followed by sell orders
+
+    // both sides at once, the same instance is returned until the book changes and then a higher version
+    BoardSnapshot getBoardSnapshot();
+
+    // highest buy level, null if there are no buy orders
+    AggregatedOrder getBestBid();
+
+    // lowest sell level, null if there are no sell orders
+    AggregatedOrder getBestOffer();
 
+    // best offer minus best bid, negative when the book is crossed and null if either side is empty
+    Long getSpread();
 
+    // best n levels of the given side in board order, only those levels are copied
+    List<AggregatedOrder> getTopLevels(OrderSide side, int n);
+
+    // total quantity in kg of the levels at most priceRange away from the best price of the side, 0 if it is empty
+    double getDepthWithin(OrderSide side, long priceRange);
+
+    // average price of taking the quantity in kg from the best levels of the side on, null if it holds less than that
+    Double getVwapForQuantity(OrderSide side, double quantity);
+
+    // levels of the side in board order, each with its own quantity plus that of all better levels
+    List<AggregatedOrder> getCumulativeDepth(OrderSide side);
+
+    // a copy in the order they were added, forEachOrder and getOrderCount go through or count them without one
+    List<Order> getOrders();
+
+    // number of resting orders, without copying them
+    int getOrderCount();
+
+    // number of price levels of the side, without copying them
+    int getLevelCount(OrderSide side);
+
+    Order getOrder(long orderId);
+
+    List<Order> getOrdersForTrader(String trader); // in the order they were added
+
+    // cancels every resting order of the trader as one batch, returns how many were cancelled
+    int cancelAllForTrader(String trader);
+
+    // puts orders back under the ids they were given before, as when recovering the book, in one batch
+    // ids handed out afterwards are above the restored ones and at least nextOrderId
+    void restoreOrders(Map<Long, Order> orders, long nextOrderId);
+
+    // visits every resting order with its id, in the order they were added
+    void forEachOrder(OrderVisitor visitor);
+
+    // changes of price levels are delivered on the executor, conflated per level while the subscriber is behind
+    // a direct executor such as Runnable::run delivers them on the writing thread, holding up the write
+    // changes made before subscribing are not replayed, read the current board after subscribing instead
+    Subscription subscribe(LevelChangeListener listener, Executor executor);
+
+    // same as above but up to capacity changes are queued one by one before conflating
+    Subscription subscribe(LevelChangeListener listener, Executor executor, int capacity);
+}
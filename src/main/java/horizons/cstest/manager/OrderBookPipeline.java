@@ -0,0 +1,272 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/*
+ Front end turning calls from any number of threads into commands applied to a book by one thread.
+
+ Commands are written into the slots of a ring allocated up front, so a call allocates nothing but its future.
+ A producer claims the next sequence number, waits while the ring is full, fills the slot and publishes the sequence.
+ The pipeline thread applies published commands in sequence order without taking any lock, so the book itself never
+ sees more than one thread and stays in that thread's cache. Futures are completed on the completion executor, so
+ callbacks of callers do not hold up the commands behind them.
+ A command throwing an Error fails its future with it and stops the pipeline: the book may be left half changed, so
+ the commands behind it fail with an IllegalStateException rather than being applied.
+ Once closed, the pipeline thread swaps the next sequence for CLOSED when nobody has claimed it, so a producer either
+ claims a sequence the thread still applies or gets a negative one and fails.
+ * */
+public class OrderBookPipeline implements Closeable {
+    private static final int ADD = 1;
+    private static final int CANCEL = 2;
+    private static final int CANCEL_ORDER = 3;
+    private static final int CALL = 4;
+    private static final int AMEND = 5;
+    private static final int SPINS_BEFORE_PARKING = 1000;
+    private static final long CLOSED = Long.MIN_VALUE;
+
+    private final OrderBook orderBook;
+    private final Executor completionExecutor;
+    private final Command[] ring;
+    private final int mask;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong();
+    private final Thread thread;
+    private volatile long applied = -1;
+    private volatile boolean parked;
+    private volatile boolean stopped;
+
+    public OrderBookPipeline(OrderBook orderBook, int capacity) {
+        this(orderBook, capacity, ForkJoinPool.commonPool());
+    }
+
+    // Runnable::run as the completion executor completes futures on the pipeline thread, which saves a hand-off but
+    // then callbacks must be as short as the commands themselves
+    public OrderBookPipeline(OrderBook orderBook, int capacity, Executor completionExecutor) {
+        if(orderBook == null || capacity <= 0 || Integer.bitCount(capacity) != 1 || completionExecutor == null){
+            throw new IllegalArgumentException("Check pipeline arguments!");
+        }
+        this.orderBook = orderBook;
+        this.completionExecutor = completionExecutor;
+        this.ring = new Command[capacity];
+        this.mask = capacity - 1;
+        this.published = new AtomicLongArray(capacity);
+        for(int i = 0; i < capacity; i++){
+            ring[i] = new Command();
+            published.set(i, -1);
+        }
+        this.thread = new Thread(this::run, "order-book-pipeline");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public CompletableFuture<Long> addOrder(Order order){
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        long sequence = claim();
+        Command command = ring[(int) sequence & mask];
+        command.type = ADD;
+        command.order = order;
+        command.result = result;
+        publish(sequence);
+        return result;
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(long orderId){
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long sequence = claim();
+        Command command = ring[(int) sequence & mask];
+        command.type = CANCEL;
+        command.orderId = orderId;
+        command.result = result;
+        publish(sequence);
+        return result;
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(Order order){
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long sequence = claim();
+        Command command = ring[(int) sequence & mask];
+        command.type = CANCEL_ORDER;
+        command.order = order;
+        command.result = result;
+        publish(sequence);
+        return result;
+    }
+
+    public CompletableFuture<Boolean> amendOrder(long orderId, long price, double quantity){
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        long sequence = claim();
+        Command command = ring[(int) sequence & mask];
+        command.type = AMEND;
+        command.orderId = orderId;
+        command.price = price;
+        command.quantity = quantity;
+        command.result = result;
+        publish(sequence);
+        return result;
+    }
+
+    // runs any other call, reads included, on the pipeline thread in turn with the commands before it
+    public <T> CompletableFuture<T> submit(Function<OrderBook, T> call){
+        if(call == null){
+            throw new IllegalArgumentException("Check call argument!");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long sequence = claim();
+        Command command = ring[(int) sequence & mask];
+        command.type = CALL;
+        command.call = call;
+        command.result = result;
+        publish(sequence);
+        return result;
+    }
+
+    // stops the pipeline thread once the commands published so far have been applied
+    @Override
+    public void close(){
+        stopped = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        }
+        catch(InterruptedException e){
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long claim() {
+        if(stopped){
+            throw new IllegalStateException("Pipeline is closed!");
+        }
+        long sequence = claimed.getAndIncrement();
+        if(sequence < 0){
+            throw new IllegalStateException("Pipeline is closed!");
+        }
+        // the slot is free again once the command that used it a lap earlier has been applied
+        while(sequence - ring.length > applied){
+            Thread.yield();
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence) {
+        // a full volatile write, so it cannot be ordered after the read of parked
+        published.set((int) sequence & mask, sequence);
+        if(parked){
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        long next = 0;
+        int spins = 0;
+        Error failure = null;
+        while(true) {
+            int index = (int) next & mask;
+            if(published.get(index) == next){
+                if(null == failure){
+                    failure = ring[index].apply(orderBook, completionExecutor);
+                    if(null != failure){
+                        stopped = true; // before the caller can see the failure
+                        ring[index].fail(failure, completionExecutor);
+                    }
+                }
+                else {
+                    ring[index].fail(new IllegalStateException("Pipeline has failed!", failure), completionExecutor);
+                }
+                applied = next++;
+                spins = 0;
+                continue;
+            }
+            if(stopped && claimed.compareAndSet(next, CLOSED)){
+                return;
+            }
+            if(++spins < SPINS_BEFORE_PARKING){
+                continue;
+            }
+            parked = true;
+            // a command published before the flag was seen would otherwise wait for the next one
+            if(published.get(index) != next && !stopped){
+                LockSupport.park(this);
+            }
+            parked = false;
+        }
+    }
+
+    // mutable slot of the ring, written by one producer and then read by the pipeline thread
+    private static class Command {
+        private int type;
+        private Order order;
+        private long orderId;
+        private long price;
+        private double quantity;
+        private Function<OrderBook, ?> call;
+        private CompletableFuture<?> result;
+
+        // returns the Error the command threw, its future is then left to fail, null when the future is completed
+        @SuppressWarnings("unchecked")
+        Error apply(OrderBook orderBook, Executor completionExecutor) {
+            CompletableFuture<Object> result = (CompletableFuture<Object>) this.result;
+            Object value;
+            try {
+                switch(type) {
+                    case ADD:
+                        value = orderBook.addOrder(order);
+                        break;
+                    case CANCEL:
+                        value = orderBook.cancelOrder(orderId);
+                        break;
+                    case CANCEL_ORDER:
+                        value = orderBook.cancelOrder(order);
+                        break;
+                    case AMEND:
+                        value = orderBook.amendOrder(orderId, price, quantity);
+                        break;
+                    default:
+                        value = call.apply(orderBook);
+                }
+            }
+            catch(Error e){
+                return e;
+            }
+            catch(Throwable e){
+                fail(e, completionExecutor);
+                return null;
+            }
+            complete(completionExecutor, () -> result.complete(value));
+            clear();
+            return null;
+        }
+
+        void fail(Throwable e, Executor completionExecutor) {
+            CompletableFuture<?> result = this.result;
+            complete(completionExecutor, () -> result.completeExceptionally(e));
+            clear();
+        }
+
+        // nothing the caller handed over is kept alive by the ring
+        private void clear() {
+            order = null;
+            call = null;
+            result = null;
+        }
+
+        private static void complete(Executor completionExecutor, Runnable completion) {
+            try {
+                completionExecutor.execute(completion);
+            }
+            catch(RejectedExecutionException e){
+                completion.run();
+            }
+        }
+    }
+}
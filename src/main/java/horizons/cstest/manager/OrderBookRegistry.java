@@ -0,0 +1,269 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/*
+ Order books of many instruments, keyed by symbol and spread over a fixed number of shards.
+
+ Each shard is one thread that owns the books of the symbols hashing to it and is the only thread ever touching them,
+ so the books need no locking and books of different shards never contend. Callers hand their operations to the
+ shard through its lock-free queue and get a future of the result back; operations on one symbol are applied in the
+ order they were submitted by a given caller. A book is created on the first operation on its symbol.
+ Reads across books are queued to every shard like any other operation, so each book is read between two writes.
+ Futures are completed on the completion executor rather than the shard thread, so whatever the caller chains onto
+ them never holds up the shard. Once the registry is closed, operations fail their futures with an
+ IllegalStateException.
+ * */
+public class OrderBookRegistry implements Closeable {
+    private final Shard[] shards;
+    private final Executor completionExecutor;
+
+    public OrderBookRegistry(int shards) {
+        this(shards, SimpleOrderBook::new);
+    }
+
+    public OrderBookRegistry(int shards, Supplier<OrderBook> orderBookFactory) {
+        this(shards, orderBookFactory, ForkJoinPool.commonPool());
+    }
+
+    // Runnable::run as the completion executor completes futures on the shard thread, which saves a hand-off but
+    // then callbacks must be as short as the operations themselves
+    public OrderBookRegistry(int shards, Supplier<OrderBook> orderBookFactory, Executor completionExecutor) {
+        if(shards <= 0 || orderBookFactory == null || completionExecutor == null){
+            throw new IllegalArgumentException("Check registry arguments!");
+        }
+        this.completionExecutor = completionExecutor;
+        this.shards = new Shard[shards];
+        for(int i = 0; i < shards; i++){
+            this.shards[i] = new Shard(i, orderBookFactory);
+        }
+    }
+
+    public CompletableFuture<Long> addOrder(String symbol, Order order){
+        return submit(symbol, orderBook -> orderBook.addOrder(order));
+    }
+
+    public CompletableFuture<Boolean> cancelOrder(String symbol, long orderId){
+        return submit(symbol, orderBook -> orderBook.cancelOrder(orderId));
+    }
+
+    public CompletableFuture<Boolean> amendOrder(String symbol, long orderId, long price, double quantity){
+        return submit(symbol, orderBook -> orderBook.amendOrder(orderId, price, quantity));
+    }
+
+    public CompletableFuture<List<Long>> applyBatch(String symbol, OrderBatch batch){
+        return submit(symbol, orderBook -> orderBook.applyBatch(batch));
+    }
+
+    // runs any operation on the book of the symbol on its shard, the book must not escape the operation
+    public <T> CompletableFuture<T> submit(String symbol, Function<OrderBook, T> operation){
+        if(isBlank(symbol) || operation == null){
+            throw new IllegalArgumentException("Check submit arguments!");
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        shard(symbol).offer(books -> {
+            T value;
+            try {
+                value = operation.apply(books.getOrCreate(symbol));
+            }
+            catch(RuntimeException e){
+                complete(() -> result.completeExceptionally(e));
+                return;
+            }
+            complete(() -> result.complete(value));
+        }, result);
+        return result;
+    }
+
+    // top n levels of the side of every book, by symbol
+    public SortedMap<String, List<AggregatedOrder>> getTopLevels(OrderSide side, int n){
+        if(side == null || n < 0){
+            throw new IllegalArgumentException("Check side and n arguments!");
+        }
+        return readAll(orderBook -> orderBook.getTopLevels(side, n));
+    }
+
+    // best bid of every book by symbol, null for books without buy orders
+    public SortedMap<String, AggregatedOrder> getBestBids(){
+        return readAll(OrderBook::getBestBid);
+    }
+
+    // best offer of every book by symbol, null for books without sell orders
+    public SortedMap<String, AggregatedOrder> getBestOffers(){
+        return readAll(OrderBook::getBestOffer);
+    }
+
+    public List<String> getSymbols(){
+        return new ArrayList<>(readAll(orderBook -> Boolean.TRUE).keySet());
+    }
+
+    public int getShardCount(){
+        return shards.length;
+    }
+
+    // stops the shards once they have applied what was submitted so far
+    @Override
+    public void close(){
+        for(Shard shard : shards){
+            shard.stop();
+        }
+        for(Shard shard : shards){
+            try {
+                shard.thread.join();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private <T> SortedMap<String, T> readAll(Function<OrderBook, T> read) {
+        List<CompletableFuture<Map<String, T>>> results = new ArrayList<>(shards.length);
+        for(Shard shard : shards){
+            CompletableFuture<Map<String, T>> result = new CompletableFuture<>();
+            // only joined below, so it can be completed on the shard thread
+            shard.offer(books -> {
+                try {
+                    Map<String, T> values = new HashMap<>();
+                    for(Map.Entry<String, OrderBook> book : books.entrySet()){
+                        values.put(book.getKey(), read.apply(book.getValue()));
+                    }
+                    result.complete(values);
+                }
+                catch(RuntimeException e){
+                    result.completeExceptionally(e);
+                }
+            }, result);
+            results.add(result);
+        }
+        SortedMap<String, T> values = new TreeMap<>();
+        for(CompletableFuture<Map<String, T>> result : results){
+            values.putAll(result.join());
+        }
+        return values;
+    }
+
+    private void complete(Runnable completion) {
+        try {
+            completionExecutor.execute(completion);
+        }
+        catch(RejectedExecutionException e){
+            completion.run();
+        }
+    }
+
+    private Shard shard(String symbol) {
+        int hash = symbol.hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private interface Task {
+        void run(Books books);
+    }
+
+    // books of one shard, only ever touched by its thread
+    private static class Books {
+        private final Map<String, OrderBook> books = new HashMap<>();
+        private final Supplier<OrderBook> orderBookFactory;
+
+        Books(Supplier<OrderBook> orderBookFactory) {
+            this.orderBookFactory = orderBookFactory;
+        }
+
+        OrderBook getOrCreate(String symbol) {
+            OrderBook orderBook = books.get(symbol);
+            if(null == orderBook){
+                orderBook = orderBookFactory.get();
+                books.put(symbol, orderBook);
+            }
+            return orderBook;
+        }
+
+        Iterable<Map.Entry<String, OrderBook>> entrySet() {
+            return books.entrySet();
+        }
+    }
+
+    private static class Shard implements Runnable {
+        private final Queue<Task> tasks = new ConcurrentLinkedQueue<>();
+        private final Books books;
+        private final Thread thread;
+        private volatile boolean parked;
+        private volatile boolean stopped;
+
+        Shard(int index, Supplier<OrderBook> orderBookFactory) {
+            this.books = new Books(orderBookFactory);
+            this.thread = new Thread(this, "order-book-shard-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        // the task completes the result itself, unless the shard has stopped before taking it
+        void offer(Task task, CompletableFuture<?> result) {
+            if(stopped){
+                result.completeExceptionally(new IllegalStateException("Registry is closed!"));
+                return;
+            }
+            tasks.offer(task);
+            // the shard takes what it finds queued after seeing stopped, a task still queued after that never runs
+            if(stopped && tasks.remove(task)){
+                result.completeExceptionally(new IllegalStateException("Registry is closed!"));
+                return;
+            }
+            if(parked){
+                LockSupport.unpark(thread);
+            }
+        }
+
+        void stop() {
+            stopped = true;
+            LockSupport.unpark(thread);
+        }
+
+        @Override
+        public void run() {
+            while(true) {
+                Task task = tasks.poll();
+                if(null != task){
+                    task.run(books);
+                    continue;
+                }
+                if(stopped){
+                    // whatever was queued before stopped was seen is applied, later tasks are taken back by offer
+                    for(task = tasks.poll(); null != task; task = tasks.poll()){
+                        task.run(books);
+                    }
+                    return;
+                }
+                parked = true;
+                // a task offered before the flag was seen would otherwise wait for the next one
+                if(tasks.isEmpty() && !stopped){
+                    LockSupport.park(this);
+                }
+                parked = false;
+            }
+        }
+    }
+}
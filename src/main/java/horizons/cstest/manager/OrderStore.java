@@ -0,0 +1,41 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+
+import java.io.Closeable;
+import java.util.List;
+
+// Resting orders of a SimpleOrderBook by id, kept in the order they were added, see HeapOrderStore and OffHeapOrderStore.
+interface OrderStore extends Closeable {
+
+    void put(long orderId, Order order);
+
+    // null if there is no such order
+    Order remove(long orderId);
+
+    // null if there is no such order
+    Order get(long orderId);
+
+    boolean contains(long orderId);
+
+    // changes the price and quantity of a resting order, which keeps its id and place, side and trader stay the same
+    void replace(long orderId, Order order);
+
+    // id of the oldest resting order equal to the given one, 0 if there is none
+    long oldestEqual(Order order);
+
+    List<Long> orderIdsOf(String trader); // in the order they were added
+
+    List<Order> ordersOf(String trader); // in the order they were added
+
+    List<Order> orders(); // in the order they were added
+
+    void forEach(OrderVisitor visitor);
+
+    int size();
+
+    // lets go of what the store holds outside the heap, the store is not used afterwards
+    @Override
+    default void close() {
+    }
+}
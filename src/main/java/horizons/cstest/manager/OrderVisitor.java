@@ -0,0 +1,8 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+
+public interface OrderVisitor {
+
+    void visit(long orderId, Order order);
+}
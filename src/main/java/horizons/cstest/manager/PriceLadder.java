@@ -0,0 +1,304 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ Aggregated price levels of one side of the book, kept as parallel primitive arrays sorted by ascending price.
+ Quantities are updated in place so adding to or cancelling from an existing level allocates nothing, only opening
+ or closing a level shifts the arrays (and opening one may grow them). Levels are few compared to orders so the
+ shift is cheap, and reads are a walk over the arrays in board order.
+ Quantities are whole grams so a level goes away exactly when its last order does.
+ AggregatedOrder instances are only created for what is handed out.
+
+ Running sums of quantity and notional (price times quantity) over the levels are kept in Fenwick trees, so depth and
+ VWAP queries take O(log levels). A change to an existing level updates the trees in O(log levels); opening or closing
+ a level, which shifts the arrays anyway, leaves them to be rebuilt in one pass by the next query.
+ * */
+class PriceLadder implements Ladder {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final OrderSide side;
+    private long[] prices = new long[INITIAL_CAPACITY];
+    private long[] quantities = new long[INITIAL_CAPACITY]; // in grams, see Quantity
+    private int size;
+    private long[] quantityTree = new long[INITIAL_CAPACITY + 1]; // 1-based, over ascending prices
+    private long[] notionalTree = new long[INITIAL_CAPACITY + 1];
+    private boolean treesValid = true;
+
+    PriceLadder(OrderSide side) {
+        this.side = side;
+    }
+
+    // frozen copy with its trees built, safe to query from any number of threads as long as nobody changes it
+    // the ladder copied is only read, so a copy taken while a writer changes it can be thrown away and taken again
+    private PriceLadder(PriceLadder ladder) {
+        int size = ladder.size;
+        this.side = ladder.side;
+        this.prices = Arrays.copyOf(ladder.prices, size);
+        this.quantities = Arrays.copyOf(ladder.quantities, size);
+        this.size = size;
+        this.quantityTree = new long[size + 1];
+        this.notionalTree = new long[size + 1];
+        this.treesValid = false;
+        trees();
+    }
+
+    PriceLadder copy() {
+        return new PriceLadder(this);
+    }
+
+    @Override
+    public void add(long price, long quantity) {
+        int index = Arrays.binarySearch(prices, 0, size, price);
+        if(index >= 0) {
+            quantities[index] += quantity;
+            updateTrees(index, quantity);
+        }
+        else {
+            insert(-index - 1, price, quantity);
+        }
+    }
+
+    // returns false if there is no level at this price
+    @Override
+    public boolean remove(long price, long quantity) {
+        int index = Arrays.binarySearch(prices, 0, size, price);
+        if(index < 0) {
+            return false;
+        }
+        if(quantities[index] <= quantity) {
+            // remove since this was the only remaining order
+            delete(index);
+        }
+        else {
+            quantities[index] -= quantity;
+            updateTrees(index, -quantity);
+        }
+        return true;
+    }
+
+    // aggregated quantity at this price, 0 if there is no such level
+    @Override
+    public long quantity(long price) {
+        int index = Arrays.binarySearch(prices, 0, size, price);
+        return index < 0 ? 0 : quantities[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // levels are numbered in board order, 0 being the best price (highest for buy, lowest for sell)
+    @Override
+    public long priceAt(int level) {
+        return prices[index(level)];
+    }
+
+    long quantityAt(int level) {
+        return quantities[index(level)];
+    }
+
+    @Override
+    public AggregatedOrder levelAt(int level) {
+        int index = index(level);
+        return AggregatedOrder.ofUnits(side, prices[index], quantities[index]);
+    }
+
+    @Override
+    public List<AggregatedOrder> levels() {
+        return levels(size);
+    }
+
+    // best n levels in board order
+    @Override
+    public List<AggregatedOrder> levels(int n) {
+        List<AggregatedOrder> levels = new ArrayList<>(Math.min(n, size));
+        addLevelsTo(levels, n);
+        return levels;
+    }
+
+    @Override
+    public void addLevelsTo(List<AggregatedOrder> levels, int n) {
+        for(int level = 0, count = Math.min(n, size); level < count; level++) {
+            levels.add(levelAt(level));
+        }
+    }
+
+    // total quantity of the levels at most priceRange away from the best price, in grams
+    @Override
+    public long depthWithin(long priceRange) {
+        if(size == 0) {
+            return 0;
+        }
+        trees();
+        if(OrderSide.BUY == side) {
+            return prefixQuantity(size) - prefixQuantity(firstIndexAtOrAbove(prices[size - 1] - priceRange));
+        }
+        if(priceRange >= Long.MAX_VALUE - prices[0]) {
+            return prefixQuantity(size);
+        }
+        return prefixQuantity(firstIndexAtOrAbove(prices[0] + priceRange + 1));
+    }
+
+    // average price of taking the quantity in grams from the best levels on, null if the side holds less than that
+    @Override
+    public Double vwap(long quantity) {
+        trees();
+        if(quantity <= 0 || prefixQuantity(size) < quantity) {
+            return null;
+        }
+        return notionalOf(quantity) / quantity;
+    }
+
+    // notional of taking the quantity in grams from the best levels on, the side must hold at least that much
+    double notionalOf(long quantity) {
+        if(quantity <= 0) {
+            return 0;
+        }
+        trees();
+        long total = prefixQuantity(size);
+        if(OrderSide.BUY == side) {
+            // levels above index are taken in full, the rest comes from the level at index
+            int index = countUpTo(total - quantity);
+            long taken = total - prefixQuantity(index + 1);
+            return prefixNotional(size) - prefixNotional(index + 1) + (double) prices[index] * (quantity - taken);
+        }
+        // levels below index are taken in full, the rest comes from the level at index
+        int index = countUpTo(quantity - 1);
+        return prefixNotional(index) + (double) prices[index] * (quantity - prefixQuantity(index));
+    }
+
+    // total quantity of the levels priced from low to high, both included
+    long quantityBetween(long low, long high) {
+        if(size == 0 || low > high) {
+            return 0;
+        }
+        trees();
+        int to = high == Long.MAX_VALUE ? size : firstIndexAtOrAbove(high + 1);
+        return prefixQuantity(to) - prefixQuantity(firstIndexAtOrAbove(low));
+    }
+
+    // number of levels priced below the given price
+    int countBelow(long price) {
+        return firstIndexAtOrAbove(price);
+    }
+
+    // levels in board order, each holding its own quantity plus that of all better levels
+    @Override
+    public List<AggregatedOrder> cumulativeLevels() {
+        List<AggregatedOrder> levels = new ArrayList<>(size);
+        long cumulative = 0;
+        for(int level = 0; level < size; level++) {
+            int index = index(level);
+            cumulative += quantities[index];
+            levels.add(AggregatedOrder.ofUnits(side, prices[index], cumulative));
+        }
+        return levels;
+    }
+
+    private int firstIndexAtOrAbove(long price) {
+        int index = Arrays.binarySearch(prices, 0, size, price);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // sum of the quantities of the count lowest prices
+    private long prefixQuantity(int count) {
+        long sum = 0;
+        for(int i = count; i > 0; i -= i & -i) {
+            sum += quantityTree[i];
+        }
+        return sum;
+    }
+
+    private long prefixNotional(int count) {
+        long sum = 0;
+        for(int i = count; i > 0; i -= i & -i) {
+            sum += notionalTree[i];
+        }
+        return sum;
+    }
+
+    // how many of the lowest prices together hold at most the given quantity
+    private int countUpTo(long quantity) {
+        int count = 0;
+        for(int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = count + step;
+            if(next <= size && quantityTree[next] <= quantity) {
+                count = next;
+                quantity -= quantityTree[next];
+            }
+        }
+        return count;
+    }
+
+    private void updateTrees(int index, long quantity) {
+        if(!treesValid) {
+            return;
+        }
+        long notional = prices[index] * quantity;
+        for(int i = index + 1; i <= size; i += i & -i) {
+            quantityTree[i] += quantity;
+            notionalTree[i] += notional;
+        }
+    }
+
+    private void trees() {
+        if(treesValid) {
+            return;
+        }
+        if(quantityTree.length < size + 1) {
+            quantityTree = new long[prices.length + 1];
+            notionalTree = new long[prices.length + 1];
+        }
+        for(int i = 1; i <= size; i++) {
+            quantityTree[i] = quantities[i - 1];
+            notionalTree[i] = prices[i - 1] * quantities[i - 1];
+        }
+        for(int i = 1; i <= size; i++) {
+            int parent = i + (i & -i);
+            if(parent <= size) {
+                quantityTree[parent] += quantityTree[i];
+                notionalTree[parent] += notionalTree[i];
+            }
+        }
+        treesValid = true;
+    }
+
+    private int index(int level) {
+        if(level < 0 || level >= size) {
+            throw new IndexOutOfBoundsException("Level: " + level + ", levels: " + size);
+        }
+        return OrderSide.BUY == side ? size - 1 - level : level;
+    }
+
+    private void insert(int index, long price, long quantity) {
+        if(size == prices.length) {
+            prices = Arrays.copyOf(prices, size * 2);
+            quantities = Arrays.copyOf(quantities, size * 2);
+        }
+        System.arraycopy(prices, index, prices, index + 1, size - index);
+        System.arraycopy(quantities, index, quantities, index + 1, size - index);
+        prices[index] = price;
+        quantities[index] = quantity;
+        size++;
+        treesValid = false;
+    }
+
+    private void delete(int index) {
+        System.arraycopy(prices, index + 1, prices, index, size - index - 1);
+        System.arraycopy(quantities, index + 1, quantities, index, size - index - 1);
+        size--;
+        treesValid = false;
+    }
+}
@@ -0,0 +1,591 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Fill;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.io.Closeable;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.Executor;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static horizons.cstest.model.Quantity.toKg;
+import static horizons.cstest.model.Quantity.toUnits;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+// Not thread safe, see ConcurrentOrderBook for a book shared between threads.
+// Created with a FillListener the book matches crossing orders instead of resting them, see match.
+public class SimpleOrderBook implements OrderBook, Closeable {
+    // resting orders by the id assigned when they were added, on the heap unless created with offHeap
+    private long nextOrderId = 1;
+    private final OrderStore orders;
+    /*
+     Based on assumption there is more frequent request for a view of order book than order book manipulation(add/remove),
+     updated ladders of sell and buy aggregated orders are maintained.
+     Otherwise it would have been better to maintain just the list of plain orders and then compute aggregated orders on
+     the fly using streams when requested.
+     Added/Removed could also be used as callbacks on a Listenable orders list to update aggregated ladders.
+
+     Ladders are kept sorted by price and hold primitive quantities updated in place, see PriceLadder, or are indexed
+     by price within a band of ticks when created with tickIndexed, see TickLadder.
+     * */
+    private final Ladder buyLevels;
+    private final Ladder sellLevels;
+    // built on the first read after a change and shared until the next one
+    private BoardSnapshot snapshot;
+    private long boardVersion;
+    private final LevelChangePublisher publisher = new LevelChangePublisher();
+    /*
+     Only when matching: ids of the orders resting at each price, oldest first, giving the time priority within a level.
+     An id leaves its queue as soon as its order leaves the level, in O(1) whatever the length of the queue, and a
+     queue goes away with its last id.
+     * */
+    private final FillListener fillListener;
+    private final Map<Long, Set<Long>> buyQueues;
+    private final Map<Long, Set<Long>> sellQueues;
+
+    public SimpleOrderBook() {
+        this(new HeapOrderStore(), new PriceLadder(BUY), new PriceLadder(SELL), null);
+    }
+
+    // matching book, fills are reported to the listener
+    public SimpleOrderBook(FillListener fillListener) {
+        this(new HeapOrderStore(), new PriceLadder(BUY), new PriceLadder(SELL), checked(fillListener));
+    }
+
+    private SimpleOrderBook(OrderStore orders, Ladder buyLevels, Ladder sellLevels, FillListener fillListener) {
+        this.orders = orders;
+        this.buyLevels = buyLevels;
+        this.sellLevels = sellLevels;
+        this.fillListener = fillListener;
+        this.buyQueues = null == fillListener ? null : new HashMap<>();
+        this.sellQueues = null == fillListener ? null : new HashMap<>();
+    }
+
+    // book keeping its orders in direct memory, for books too deep for the heap, see OffHeapOrderStore
+    // close lets go of the memory, or of the file below
+    public static SimpleOrderBook offHeap(){
+        return new SimpleOrderBook(new OffHeapOrderStore(), new PriceLadder(BUY), new PriceLadder(SELL), null);
+    }
+
+    // same as above with the orders in a memory-mapped file, which is overwritten
+    public static SimpleOrderBook offHeap(Path file){
+        if(file == null){
+            throw new IllegalArgumentException("Check file argument!");
+        }
+        return new SimpleOrderBook(new OffHeapOrderStore(file), new PriceLadder(BUY), new PriceLadder(SELL), null);
+    }
+
+    // book for prices trading within a band of about ticks around midPrice, levels in the band are array slots
+    // prices outside it still work, the band follows them when they drift, see TickLadder
+    public static SimpleOrderBook tickIndexed(long midPrice, int ticks){
+        if(midPrice <= 0 || ticks <= 0){
+            throw new IllegalArgumentException("Check tick arguments!");
+        }
+        return new SimpleOrderBook(new HeapOrderStore(), new TickLadder(BUY, midPrice, ticks),
+                                   new TickLadder(SELL, midPrice, ticks), null);
+    }
+
+    // when matching, the returned id only rests in the book if the order was not filled in full
+    @Override
+    public long addOrder(Order order){
+        if(order == null){
+            throw new IllegalArgumentException("Check order argument!");
+        }
+        long orderId = nextOrderId++;
+        if(isMatching()){
+            order = match(orderId, order);
+            if(null == order){
+                return orderId;
+            }
+        }
+        store(orderId, order);
+        added(order);
+        return orderId;
+    }
+
+    @Override
+    public boolean cancelOrder(long orderId){
+        Order order = unstore(orderId);
+        if(null == order){
+            return false;
+        }
+        removed(order);
+        return true;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order){
+        long orderId = orders.oldestEqual(order);
+        return orderId != 0 && cancelOrder(orderId);
+    }
+
+    /*
+     A new quantity at the same price only applies the difference to the level. A new price takes the order off its
+     level and puts it on the other in one go, so nobody sees the book without it.
+     When matching, an order keeps its place in the queue of its level only when its quantity goes down, and a new
+     price is matched like an incoming order, what is left rests at the back of the new level.
+     * */
+    @Override
+    public boolean amendOrder(long orderId, long price, double quantity){
+        if(price <= 0 || toUnits(quantity) <= 0){
+            throw new IllegalArgumentException("Check amend arguments!");
+        }
+        Order order = orders.get(orderId);
+        if(null == order){
+            return false;
+        }
+        Order amended = order.withUnits(price, toUnits(quantity));
+        if(price == order.getPrice()){
+            long delta = amended.getQuantityUnits() - order.getQuantityUnits();
+            if(delta != 0){
+                orders.replace(orderId, amended);
+                Ladder levels = levels(order.getSide());
+                if(delta > 0){
+                    levels.add(price, delta);
+                    if(isMatching()){
+                        // to the back of the queue
+                        dequeue(order.getSide(), price, orderId);
+                        enqueue(order.getSide(), price, orderId);
+                    }
+                }
+                else {
+                    levels.remove(price, -delta);
+                }
+                snapshot = null;
+                publisher.publish(order.getSide(), price, levels.quantity(price));
+            }
+            return true;
+        }
+        if(isMatching()){
+            dequeue(order.getSide(), order.getPrice(), orderId);
+            removed(order);
+            amended = match(orderId, amended);
+            if(null == amended){
+                unstore(orderId);
+                return true;
+            }
+            enqueue(order.getSide(), price, orderId);
+        }
+        else {
+            removed(order);
+        }
+        orders.replace(orderId, amended);
+        added(amended);
+        return true;
+    }
+
+    @Override
+    public List<Long> addOrders(Collection<Order> orders){
+        if(orders == null || orders.contains(null)){
+            throw new IllegalArgumentException("Check orders argument!");
+        }
+        return apply(orders, Collections.emptyList());
+    }
+
+    @Override
+    public int cancelOrders(Collection<Long> orderIds){
+        if(orderIds == null){
+            throw new IllegalArgumentException("Check order ids argument!");
+        }
+        int ordersBefore = orders.size();
+        apply(Collections.emptyList(), orderIds);
+        return ordersBefore - orders.size();
+    }
+
+    @Override
+    public List<Long> applyBatch(OrderBatch batch){
+        if(batch == null){
+            throw new IllegalArgumentException("Check batch argument!");
+        }
+        return apply(batch.getOrdersToAdd(), batch.getOrderIdsToCancel());
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedBuyOrders(){
+        return buyLevels.levels();
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedSellOrders(){
+        return sellLevels.levels();
+    }
+
+    @Override
+    public List<AggregatedOrder> getAllAggregatedOrders(){
+        List<AggregatedOrder> aggregatedOrders = new ArrayList<>(buyLevels.size() + sellLevels.size());
+        buyLevels.addLevelsTo(aggregatedOrders, buyLevels.size());
+        sellLevels.addLevelsTo(aggregatedOrders, sellLevels.size());
+        return aggregatedOrders;
+    }
+
+    @Override
+    public BoardSnapshot getBoardSnapshot(){
+        if(null == snapshot){
+            snapshot = new BoardSnapshot(++boardVersion, Collections.unmodifiableList(buyLevels.levels()),
+                                         Collections.unmodifiableList(sellLevels.levels()));
+        }
+        return snapshot;
+    }
+
+    @Override
+    public AggregatedOrder getBestBid(){
+        return buyLevels.isEmpty() ? null : buyLevels.levelAt(0);
+    }
+
+    @Override
+    public AggregatedOrder getBestOffer(){
+        return sellLevels.isEmpty() ? null : sellLevels.levelAt(0);
+    }
+
+    @Override
+    public Long getSpread(){
+        if(buyLevels.isEmpty() || sellLevels.isEmpty()){
+            return null;
+        }
+        return sellLevels.priceAt(0) - buyLevels.priceAt(0);
+    }
+
+    @Override
+    public List<AggregatedOrder> getTopLevels(OrderSide side, int n){
+        if(side == null || n < 0){
+            throw new IllegalArgumentException("Check top levels arguments!");
+        }
+        return levels(side).levels(n);
+    }
+
+    @Override
+    public double getDepthWithin(OrderSide side, long priceRange){
+        if(side == null || priceRange < 0){
+            throw new IllegalArgumentException("Check depth arguments!");
+        }
+        return toKg(levels(side).depthWithin(priceRange));
+    }
+
+    @Override
+    public Double getVwapForQuantity(OrderSide side, double quantity){
+        if(side == null || quantity <= 0){
+            throw new IllegalArgumentException("Check vwap arguments!");
+        }
+        return levels(side).vwap(toUnits(quantity));
+    }
+
+    @Override
+    public List<AggregatedOrder> getCumulativeDepth(OrderSide side){
+        if(side == null){
+            throw new IllegalArgumentException("Check side argument!");
+        }
+        return levels(side).cumulativeLevels();
+    }
+
+    @Override
+    public List<Order> getOrders(){
+        return Collections.unmodifiableList(orders.orders());
+    }
+
+    @Override
+    public int getOrderCount(){
+        return orders.size();
+    }
+
+    @Override
+    public int getLevelCount(OrderSide side){
+        if(side == null){
+            throw new IllegalArgumentException("Check side argument!");
+        }
+        return levels(side).size();
+    }
+
+    @Override
+    public Order getOrder(long orderId){
+        return orders.get(orderId);
+    }
+
+    @Override
+    public List<Order> getOrdersForTrader(String trader){
+        if(isBlank(trader)){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        return Collections.unmodifiableList(orders.ordersOf(trader));
+    }
+
+    @Override
+    public int cancelAllForTrader(String trader){
+        if(isBlank(trader)){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        return cancelOrders(orders.orderIdsOf(trader));
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor){
+        return subscribe(listener, executor, 0);
+    }
+
+    @Override
+    public Subscription subscribe(LevelChangeListener listener, Executor executor, int capacity){
+        return publisher.subscribe(listener, executor, capacity);
+    }
+
+    @Override
+    public void restoreOrders(Map<Long, Order> orders, long nextOrderId){
+        if(orders == null){
+            throw new IllegalArgumentException("Check orders argument!");
+        }
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            if(order.getKey() <= 0 || order.getValue() == null || this.orders.contains(order.getKey())){
+                throw new IllegalArgumentException("Check order " + order.getKey() + "!");
+            }
+        }
+        LevelDeltas deltas = new LevelDeltas();
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            store(order.getKey(), order.getValue());
+            deltas.added(order.getValue());
+            this.nextOrderId = Math.max(this.nextOrderId, order.getKey() + 1);
+        }
+        this.nextOrderId = Math.max(this.nextOrderId, nextOrderId);
+        deltas.applyTo(BUY, buyLevels, publisher);
+        deltas.applyTo(SELL, sellLevels, publisher);
+        snapshot = null;
+    }
+
+    @Override
+    public void forEachOrder(OrderVisitor visitor){
+        orders.forEach(visitor);
+    }
+
+    // lets go of the memory or file of an offHeap book, nothing to do otherwise, the book is not used afterwards
+    @Override
+    public void close(){
+        orders.close();
+    }
+
+    // returns the ids of the added orders
+    private List<Long> apply(Collection<Order> ordersToAdd, Collection<Long> orderIdsToCancel) {
+        if(isMatching()){
+            // matching needs the levels as they are after each order, so nothing is netted
+            List<Long> addedOrderIds = new ArrayList<>(ordersToAdd.size());
+            for(Order order : ordersToAdd){
+                addedOrderIds.add(addOrder(order));
+            }
+            for(long orderId : orderIdsToCancel){
+                cancelOrder(orderId);
+            }
+            return addedOrderIds;
+        }
+        LevelDeltas deltas = new LevelDeltas();
+        List<Long> addedOrderIds = new ArrayList<>(ordersToAdd.size());
+        for(Order order : ordersToAdd){
+            addedOrderIds.add(store(order));
+            deltas.added(order);
+        }
+        for(long orderId : orderIdsToCancel){
+            Order order = unstore(orderId);
+            if(null != order){
+                deltas.removed(order);
+            }
+        }
+        deltas.applyTo(BUY, buyLevels, publisher);
+        deltas.applyTo(SELL, sellLevels, publisher);
+        snapshot = null;
+        return addedOrderIds;
+    }
+
+    private long store(Order order) {
+        return store(nextOrderId++, order);
+    }
+
+    private long store(long orderId, Order order) {
+        orders.put(orderId, order);
+        if(isMatching()){
+            enqueue(order.getSide(), order.getPrice(), orderId);
+        }
+        return orderId;
+    }
+
+    // null if there is no such order in the book
+    private Order unstore(long orderId) {
+        Order order = orders.remove(orderId);
+        if(null != order && isMatching()){
+            dequeue(order.getSide(), order.getPrice(), orderId);
+        }
+        return order;
+    }
+
+    private void enqueue(OrderSide side, long price, long orderId) {
+        queues(side).computeIfAbsent(price, p -> new LinkedHashSet<>()).add(orderId);
+    }
+
+    private void dequeue(OrderSide side, long price, long orderId) {
+        Map<Long, Set<Long>> queues = queues(side);
+        Set<Long> queue = queues.get(price);
+        if(null != queue && queue.remove(orderId) && queue.isEmpty()){
+            queues.remove(price);
+        }
+    }
+
+    // ids queued at the price when matching, for tests
+    int queued(OrderSide side, long price) {
+        Set<Long> queue = queues(side).get(price);
+        return null == queue ? 0 : queue.size();
+    }
+
+    private static FillListener checked(FillListener fillListener) {
+        if(fillListener == null){
+            throw new IllegalArgumentException("Check fill listener argument!");
+        }
+        return fillListener;
+    }
+
+    private boolean isMatching() {
+        return null != fillListener;
+    }
+
+    /*
+     Trades the incoming order against the best opposite levels while their price crosses its own, oldest order of a
+     level first, each trade at the resting order's price. Fully filled resting orders leave the book, partly filled
+     ones keep their place with what is left. Returns what is left of the incoming order, null if it was filled in full.
+     * */
+    private Order match(long orderId, Order order) {
+        OrderSide opposite = OrderSide.BUY == order.getSide() ? SELL : BUY;
+        Ladder oppositeLevels = levels(opposite);
+        Map<Long, Set<Long>> oppositeQueues = queues(opposite);
+        long remaining = order.getQuantityUnits();
+        while(remaining > 0 && !oppositeLevels.isEmpty() && crosses(order, oppositeLevels.priceAt(0))){
+            long price = oppositeLevels.priceAt(0);
+            long restingOrderId = oppositeQueues.get(price).iterator().next();
+            Order resting = orders.get(restingOrderId);
+            long quantity = Math.min(remaining, resting.getQuantityUnits());
+            remaining -= quantity;
+            if(quantity == resting.getQuantityUnits()){
+                unstore(restingOrderId);
+                removed(resting);
+            }
+            else {
+                reduce(restingOrderId, resting, quantity);
+            }
+            fillListener.onFill(new Fill(restingOrderId, orderId, order.getSide(), price, quantity, resting.getTrader(), order.getTrader()));
+        }
+        if(remaining == order.getQuantityUnits()){
+            return order;
+        }
+        return remaining == 0 ? null : order.withUnits(order.getPrice(), remaining);
+    }
+
+    private static boolean crosses(Order order, long oppositePrice) {
+        return OrderSide.BUY == order.getSide() ? oppositePrice <= order.getPrice() : oppositePrice >= order.getPrice();
+    }
+
+    // takes a partial fill off a resting order, which keeps its id and its place in the queue of its level
+    private void reduce(long orderId, Order order, long quantity) {
+        orders.replace(orderId, order.withUnits(order.getPrice(), order.getQuantityUnits() - quantity));
+        Ladder levels = levels(order.getSide());
+        levels.remove(order.getPrice(), quantity);
+        snapshot = null;
+        publisher.publish(order.getSide(), order.getPrice(), levels.quantity(order.getPrice()));
+    }
+
+    private Map<Long, Set<Long>> queues(OrderSide side) {
+        return OrderSide.BUY == side ? buyQueues : sellQueues;
+    }
+
+    private Ladder levels(OrderSide side) {
+        return OrderSide.BUY == side ? buyLevels : sellLevels;
+    }
+
+    // this can be implemented for a callback when using listenable list
+    private void added(Order order) {
+        Ladder levels = levels(order.getSide());
+        levels.add(order.getPrice(), order.getQuantityUnits());
+        snapshot = null;
+        publisher.publish(order.getSide(), order.getPrice(), levels.quantity(order.getPrice()));
+    }
+
+    // this can be implemented for a callback when using listenable list
+    private void removed(Order order) {
+        Ladder levels = levels(order.getSide());
+        // a missing level theoretically won't happen
+        if(levels.remove(order.getPrice(), order.getQuantityUnits())) {
+            snapshot = null;
+            publisher.publish(order.getSide(), order.getPrice(), levels.quantity(order.getPrice()));
+        }
+    }
+
+    /* following is for demo purposes only */
+    public static void main(String[] args){
+        Order sellOrder1, sellOrder2, sellOrder3, sellOrder4;
+        Order buyOrder1, buyOrder2, buyOrder3, buyOrder4;
+
+        sellOrder1 = new Order(SELL, 306, 3.5, "user1");
+        sellOrder2 = new Order(SELL, 310, 1.2, "user2");
+        sellOrder3 = new Order(SELL, 307, 4.0, "user1");
+        sellOrder4 = new Order(SELL, 306, 1.5, "user3");
+
+        buyOrder1 = new Order(BUY, 305, 3.5, "user1");
+        buyOrder2 = new Order(BUY, 307, 4.0, "user1");
+        buyOrder3 = new Order(BUY, 305, 2.5, "user3");
+        buyOrder4 = new Order(BUY, 304, 6.2, "user2");
+
+        OrderBook orderBook = new SimpleOrderBook();
+        orderBook.addOrder(sellOrder1);
+        System.out.println("Added " + sellOrder1);
+        orderBook.addOrder(sellOrder2);
+        System.out.println("Added " + sellOrder2);
+        orderBook.addOrder(sellOrder3);
+        System.out.println("Added " + sellOrder3);
+        orderBook.addOrder(buyOrder1);
+        System.out.println("Added " + buyOrder1);
+        orderBook.addOrder(buyOrder2);
+        System.out.println("Added " + buyOrder2);
+        orderBook.addOrder(buyOrder4);
+        System.out.println("Added " + buyOrder4);
+        printOrderBookStatus(orderBook);
+
+        orderBook.addOrder(sellOrder4);
+        System.out.println("Added " + sellOrder4);
+        orderBook.addOrder(buyOrder3);
+        System.out.println("Added " + buyOrder3);
+        printOrderBookStatus(orderBook);
+
+        orderBook.cancelOrder(sellOrder1);
+        System.out.println("Removed " + sellOrder1);
+        orderBook.cancelOrder(buyOrder1);
+        System.out.println("Removed " + buyOrder1);
+        printOrderBookStatus(orderBook);
+
+        final long startTime = System.nanoTime();
+        for (int i = 0; i< 1000000; i++){
+            orderBook.addOrder(sellOrder1);
+            orderBook.addOrder(sellOrder2);
+            orderBook.addOrder(sellOrder3);
+            orderBook.addOrder(sellOrder4);
+            orderBook.addOrder(buyOrder1);
+            orderBook.addOrder(buyOrder2);
+            orderBook.addOrder(buyOrder3);
+            orderBook.addOrder(buyOrder4);
+        }
+        printOrderBookStatus(orderBook);
+        for (int i = 0; i< 10000; i++){
+            orderBook.cancelOrder(sellOrder1);
+            orderBook.cancelOrder(buyOrder1);
+            orderBook.cancelOrder(buyOrder2);
+            orderBook.cancelOrder(buyOrder3);
+        }
+        printOrderBookStatus(orderBook);
+        System.out.printf(System.nanoTime() - startTime + "");
+    }
+
+    private static void printOrderBookStatus(OrderBook orderBook){
+        System.out.println("\nLive Order Board");
+        System.out.println("BUY ORDERS");
+        orderBook.getAggregatedBuyOrders().stream().forEach(System.out::println);
+        System.out.println("SELL ORDERS");
+        orderBook.getAggregatedSellOrders().stream().forEach(System.out::println);
+        System.out.println("END\n");
+    }
+}
+
+
@@ -0,0 +1,158 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.LevelChange;
+import horizons.cstest.model.OrderSide;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ Level changes of one subscriber, queued by the writing thread and delivered on the subscriber's executor.
+
+ The writer only appends to the queue and hands delivery to the executor, so a slow subscriber does not hold up the
+ book unless the executor is a direct one such as Runnable::run, which delivers on the writing thread before the write
+ returns. Up to `capacity` changes are queued one by one; past that, or always when capacity is 0, changes are
+ conflated per price level and only the latest quantity of each level is delivered. A subscriber that falls behind therefore skips intermediate states but
+ always ends up with the current board, and its backlog is bounded by the number of levels.
+ * */
+public class Subscription {
+    private final LevelChangeListener listener;
+    private final Executor executor;
+    private final int capacity;
+    private final Runnable onCancel;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Deque<LevelChange> queued = new ArrayDeque<>();
+    private final Map<Long, LevelChange> conflatedBuyChanges = new LinkedHashMap<>();
+    private final Map<Long, LevelChange> conflatedSellChanges = new LinkedHashMap<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean cancelled;
+    private long conflatedChanges;
+
+    Subscription(LevelChangeListener listener, Executor executor, int capacity, Runnable onCancel) {
+        if(listener == null || executor == null || capacity < 0){
+            throw new IllegalArgumentException("Check subscription arguments!");
+        }
+        this.listener = listener;
+        this.executor = executor;
+        this.capacity = capacity;
+        this.onCancel = onCancel;
+    }
+
+    public void cancel(){
+        cancelled = true;
+        onCancel.run();
+        lock.lock();
+        try {
+            queued.clear();
+            conflatedBuyChanges.clear();
+            conflatedSellChanges.clear();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isCancelled(){
+        return cancelled;
+    }
+
+    // changes that replaced an undelivered change of the same level so far
+    public long getConflatedChanges(){
+        lock.lock();
+        try {
+            return conflatedChanges;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // called by the writing thread
+    void offer(LevelChange change) {
+        if(cancelled){
+            return;
+        }
+        lock.lock();
+        try {
+            Map<Long, LevelChange> conflated = conflated(change.getSide());
+            if(queued.size() < capacity && conflatedBuyChanges.isEmpty() && conflatedSellChanges.isEmpty()){
+                queued.addLast(change);
+            }
+            else if(null != conflated.put(change.getPrice(), change)){
+                conflatedChanges++;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        if(scheduled.compareAndSet(false, true)){
+            executor.execute(this::deliver);
+        }
+    }
+
+    private void deliver() {
+        try {
+            LevelChange change;
+            while(!cancelled && null != (change = next())){
+                listener.onLevelChange(change);
+            }
+        }
+        catch(RuntimeException e){
+            // a failing listener would otherwise silently stop receiving changes
+            cancel();
+            throw e;
+        }
+        finally {
+            scheduled.set(false);
+        }
+        // a change may have been offered after the last poll but before the flag was cleared
+        if(!cancelled && hasNext() && scheduled.compareAndSet(false, true)){
+            executor.execute(this::deliver);
+        }
+    }
+
+    private LevelChange next() {
+        lock.lock();
+        try {
+            if(!queued.isEmpty()){
+                return queued.pollFirst();
+            }
+            LevelChange change = poll(conflatedBuyChanges);
+            return null != change ? change : poll(conflatedSellChanges);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean hasNext() {
+        lock.lock();
+        try {
+            return !queued.isEmpty() || !conflatedBuyChanges.isEmpty() || !conflatedSellChanges.isEmpty();
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private Map<Long, LevelChange> conflated(OrderSide side) {
+        return OrderSide.BUY == side ? conflatedBuyChanges : conflatedSellChanges;
+    }
+
+    private static LevelChange poll(Map<Long, LevelChange> changes) {
+        Iterator<LevelChange> iterator = changes.values().iterator();
+        if(!iterator.hasNext()){
+            return null;
+        }
+        LevelChange change = iterator.next();
+        iterator.remove();
+        return change;
+    }
+}
@@ -0,0 +1,378 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ Levels of one side of the book for instruments trading in a narrow band of prices.
+
+ Prices within the band [base, base + ticks) index straight into an array of quantities, so adding to, cancelling
+ from and opening a level is an array access, and the index of the best level is kept so reading it is one too.
+ When the best level goes away the next one is found by walking the array towards worse prices.
+ Levels outside the band are kept in a PriceLadder. Once the levels that went outside since the band last moved
+ outnumber the levels in it the prices have drifted, and the band is moved to be centred on the best price, which
+ costs one pass over the array and the levels.
+ In board order the outside levels better than the band come first, then the band, then the outside levels worse
+ than it. Fenwick trees over the band keep running sums of levels, quantity and notional by index, updated in
+ O(log ticks) with each change, so finding the nth level, depth and VWAP take O(log ticks) in the band and the
+ PriceLadder's own O(log levels) outside it, however wide the band is. Lists of levels walk the board.
+ * */
+class TickLadder implements Ladder {
+    private static final int NONE = -1;
+
+    private final OrderSide side;
+    private final int ticks;
+    private long base;
+    private long[] quantities; // in grams, see Quantity, 0 for no level
+    private int bandLevels;
+    private int best = NONE; // index of the best level in the band
+    private long[] levelTree; // 1-based Fenwick trees over the band indexes
+    private long[] quantityTree;
+    private long[] notionalTree;
+    private PriceLadder outside;
+    private int outsideAtRecentre; // outside levels left by the last move of the band, which moving again won't help
+
+    // the band starts centred on the given price
+    TickLadder(OrderSide side, long midPrice, int ticks) {
+        if(side == null || ticks <= 0){
+            throw new IllegalArgumentException("Check ladder arguments!");
+        }
+        this.side = side;
+        this.ticks = ticks;
+        this.base = midPrice - ticks / 2;
+        this.quantities = new long[ticks];
+        this.levelTree = new long[ticks + 1];
+        this.quantityTree = new long[ticks + 1];
+        this.notionalTree = new long[ticks + 1];
+        this.outside = new PriceLadder(side);
+    }
+
+    @Override
+    public void add(long price, long quantity) {
+        int index = index(price);
+        if(index == NONE) {
+            outside.add(price, quantity);
+            if(outside.size() - outsideAtRecentre > bandLevels) {
+                recentre();
+            }
+            return;
+        }
+        boolean opened = quantities[index] == 0;
+        if(opened) {
+            bandLevels++;
+            if(best == NONE || better(index, best)) {
+                best = index;
+            }
+        }
+        quantities[index] += quantity;
+        updateTrees(index, opened ? 1 : 0, quantity);
+    }
+
+    @Override
+    public boolean remove(long price, long quantity) {
+        int index = index(price);
+        if(index == NONE) {
+            boolean removed = outside.remove(price, quantity);
+            outsideAtRecentre = Math.min(outsideAtRecentre, outside.size());
+            return removed;
+        }
+        if(quantities[index] == 0) {
+            return false;
+        }
+        if(quantities[index] <= quantity) {
+            // remove since this was the only remaining order
+            updateTrees(index, -1, -quantities[index]);
+            quantities[index] = 0;
+            bandLevels--;
+            if(index == best) {
+                best = next(best);
+            }
+        }
+        else {
+            quantities[index] -= quantity;
+            updateTrees(index, 0, -quantity);
+        }
+        return true;
+    }
+
+    @Override
+    public long quantity(long price) {
+        int index = index(price);
+        return index == NONE ? outside.quantity(price) : quantities[index];
+    }
+
+    @Override
+    public int size() {
+        return bandLevels + outside.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public long priceAt(int level) {
+        checkLevel(level);
+        int better = betterOutside();
+        if(level < better) {
+            return outside.priceAt(level);
+        }
+        if(level < better + bandLevels) {
+            return base + bandIndex(level - better);
+        }
+        return outside.priceAt(level - bandLevels);
+    }
+
+    @Override
+    public AggregatedOrder levelAt(int level) {
+        checkLevel(level);
+        int better = betterOutside();
+        if(level < better) {
+            return outside.levelAt(level);
+        }
+        if(level < better + bandLevels) {
+            int index = bandIndex(level - better);
+            return AggregatedOrder.ofUnits(side, base + index, quantities[index]);
+        }
+        return outside.levelAt(level - bandLevels);
+    }
+
+    @Override
+    public List<AggregatedOrder> levels() {
+        return levels(size());
+    }
+
+    @Override
+    public List<AggregatedOrder> levels(int n) {
+        List<AggregatedOrder> levels = new ArrayList<>(Math.min(n, size()));
+        addLevelsTo(levels, n);
+        return levels;
+    }
+
+    @Override
+    public void addLevelsTo(List<AggregatedOrder> levels, int n) {
+        int[] left = {n};
+        walk((price, quantity) -> {
+            if(left[0]-- <= 0) {
+                return false;
+            }
+            levels.add(AggregatedOrder.ofUnits(side, price, quantity));
+            return true;
+        }, 0);
+    }
+
+    @Override
+    public long depthWithin(long priceRange) {
+        if(isEmpty() || priceRange < 0) {
+            return 0;
+        }
+        long bestPrice = priceAt(0);
+        long low;
+        long high;
+        if(OrderSide.BUY == side) {
+            low = bestPrice - priceRange;
+            high = bestPrice;
+        }
+        else {
+            low = bestPrice;
+            high = priceRange >= Long.MAX_VALUE - bestPrice ? Long.MAX_VALUE : bestPrice + priceRange;
+        }
+        return outside.quantityBetween(low, high) + bandQuantityBetween(low, high);
+    }
+
+    @Override
+    public Double vwap(long quantity) {
+        if(quantity <= 0) {
+            return null;
+        }
+        long bandQuantity = prefix(quantityTree, ticks);
+        if(outside.quantityBetween(Long.MIN_VALUE, Long.MAX_VALUE) + bandQuantity < quantity) {
+            return null;
+        }
+        long betterQuantity = OrderSide.BUY == side ? outside.quantityBetween(base + ticks, Long.MAX_VALUE)
+                                                    : outside.quantityBetween(Long.MIN_VALUE, base - 1);
+        double notional;
+        if(quantity <= betterQuantity) {
+            notional = outside.notionalOf(quantity);
+        }
+        else if(quantity <= betterQuantity + bandQuantity) {
+            notional = outside.notionalOf(betterQuantity) + bandNotionalOf(quantity - betterQuantity);
+        }
+        else {
+            // the whole band, the rest from the outside levels better and then worse than it
+            notional = prefix(notionalTree, ticks) + outside.notionalOf(quantity - bandQuantity);
+        }
+        return notional / quantity;
+    }
+
+    @Override
+    public List<AggregatedOrder> cumulativeLevels() {
+        List<AggregatedOrder> levels = new ArrayList<>(size());
+        long[] cumulative = new long[1];
+        walk((price, quantity) -> {
+            cumulative[0] += quantity;
+            levels.add(AggregatedOrder.ofUnits(side, price, cumulative[0]));
+            return true;
+        }, 0);
+        return levels;
+    }
+
+    // lowest price the band holds, for tests
+    long base() {
+        return base;
+    }
+
+    // visits the levels in board order from the given one on, until the visitor returns false
+    private void walk(LevelVisitor visitor, int from) {
+        int better = betterOutside();
+        int level = 0;
+        for(int i = 0; i < better; i++, level++) {
+            if(level >= from && !visitor.visit(outside.priceAt(i), outside.quantityAt(i))) {
+                return;
+            }
+        }
+        int step = OrderSide.BUY == side ? -1 : 1;
+        for(int index = best; index >= 0 && index < ticks; index += step) {
+            if(quantities[index] != 0 && level++ >= from && !visitor.visit(base + index, quantities[index])) {
+                return;
+            }
+        }
+        for(int i = better; i < outside.size(); i++, level++) {
+            if(level >= from && !visitor.visit(outside.priceAt(i), outside.quantityAt(i))) {
+                return;
+            }
+        }
+    }
+
+    // number of outside levels better than any price in the band, these come first in board order
+    private int betterOutside() {
+        return OrderSide.BUY == side ? outside.size() - outside.countBelow(base + ticks) : outside.countBelow(base);
+    }
+
+    // index of the given level of the band, counted in board order within the band
+    private int bandIndex(int level) {
+        if(level == 0) {
+            return best;
+        }
+        // levels in the band at lower indexes than the one looked for
+        return countUpTo(levelTree, OrderSide.BUY == side ? bandLevels - 1 - level : level);
+    }
+
+    private long bandQuantityBetween(long low, long high) {
+        long from = Math.max(low - base, 0);
+        long to = Math.min(high - base, ticks - 1);
+        if(from > to) {
+            return 0;
+        }
+        return prefix(quantityTree, (int) to + 1) - prefix(quantityTree, (int) from);
+    }
+
+    // notional of taking the quantity in grams from the best levels of the band on, the band must hold that much
+    private double bandNotionalOf(long quantity) {
+        if(OrderSide.BUY == side) {
+            // levels above index are taken in full, the rest comes from the level at index
+            long total = prefix(quantityTree, ticks);
+            int index = countUpTo(quantityTree, total - quantity);
+            long taken = total - prefix(quantityTree, index + 1);
+            return prefix(notionalTree, ticks) - prefix(notionalTree, index + 1) + (double) (base + index) * (quantity - taken);
+        }
+        // levels below index are taken in full, the rest comes from the level at index
+        int index = countUpTo(quantityTree, quantity - 1);
+        return prefix(notionalTree, index) + (double) (base + index) * (quantity - prefix(quantityTree, index));
+    }
+
+    // sum over the count lowest indexes of the band
+    private static long prefix(long[] tree, int count) {
+        long sum = 0;
+        for(int i = count; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // how many of the lowest indexes of the band together sum to at most the given value
+    private int countUpTo(long[] tree, long sum) {
+        int count = 0;
+        for(int step = Integer.highestOneBit(ticks); step > 0; step >>= 1) {
+            int next = count + step;
+            if(next <= ticks && tree[next] <= sum) {
+                count = next;
+                sum -= tree[next];
+            }
+        }
+        return count;
+    }
+
+    private void updateTrees(int index, int levels, long quantity) {
+        long notional = (base + index) * quantity;
+        for(int i = index + 1; i <= ticks; i += i & -i) {
+            levelTree[i] += levels;
+            quantityTree[i] += quantity;
+            notionalTree[i] += notional;
+        }
+    }
+
+    private void checkLevel(int level) {
+        if(level < 0 || level >= size()) {
+            throw new IndexOutOfBoundsException("Level: " + level + ", levels: " + size());
+        }
+    }
+
+    private int index(long price) {
+        long index = price - base;
+        return index >= 0 && index < ticks ? (int) index : NONE;
+    }
+
+    private boolean better(int index, int than) {
+        return OrderSide.BUY == side ? index > than : index < than;
+    }
+
+    // next level in the band from the given index towards worse prices, NONE if there is none
+    private int next(int index) {
+        if(bandLevels == 0) {
+            return NONE;
+        }
+        int step = OrderSide.BUY == side ? -1 : 1;
+        for(int i = index + step; i >= 0 && i < ticks; i += step) {
+            if(quantities[i] != 0) {
+                return i;
+            }
+        }
+        return NONE;
+    }
+
+    private void recentre() {
+        List<AggregatedOrder> levels = levels();
+        base = levels.get(0).getPrice() - ticks / 2;
+        quantities = new long[ticks];
+        levelTree = new long[ticks + 1];
+        quantityTree = new long[ticks + 1];
+        notionalTree = new long[ticks + 1];
+        bandLevels = 0;
+        best = NONE;
+        outside = new PriceLadder(side);
+        for(AggregatedOrder level : levels) {
+            int index = index(level.getPrice());
+            if(index == NONE) {
+                outside.add(level.getPrice(), level.getQuantityUnits());
+            }
+            else {
+                quantities[index] = level.getQuantityUnits();
+                updateTrees(index, 1, quantities[index]);
+                bandLevels++;
+                if(best == NONE || better(index, best)) {
+                    best = index;
+                }
+            }
+        }
+        outsideAtRecentre = outside.size();
+    }
+
+    private interface LevelVisitor {
+        boolean visit(long price, long quantity);
+    }
+}
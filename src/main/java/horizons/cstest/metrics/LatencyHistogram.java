@@ -0,0 +1,106 @@
+package horizons.cstest.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ Latency histogram in the spirit of HdrHistogram: buckets are exact up to 64 ns, above that each power of two is
+ split into 32 buckets, so any recorded value is known to within about 3% over the whole range of a long.
+ Recording is one atomic increment of a bucket allocated up front, nothing is allocated, which keeps it well under
+ 50 ns. The mean is worked out from the buckets, so it is as precise as they are.
+ Safe to record into and read from any number of threads, a read made while values are recorded may miss some of them.
+ * */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int EXACT_LIMIT = 2 << SUB_BUCKET_BITS; // values below are bucketed exactly
+    private static final int BUCKETS = bucket(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    // negative values are recorded as 0
+    public void record(long nanos){
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucket(value));
+        if(value > max.get()){
+            max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    public long getCount(){
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public long getMax(){
+        return max.get();
+    }
+
+    // middle of the buckets weighed by their counts, 0 if nothing was recorded
+    public double getMean(){
+        long count = 0;
+        double total = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            long bucketCount = counts.get(i);
+            count += bucketCount;
+            total += bucketCount * ((double) lowestValue(i) + highestValue(i)) / 2;
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    // highest value of the bucket the percentile falls in, capped by the max, 0 if nothing was recorded
+    public long getValueAtPercentile(double percentile){
+        if(percentile < 0 || percentile > 100){
+            throw new IllegalArgumentException("Check percentile argument!");
+        }
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if(count == 0){
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for(int i = 0; i < BUCKETS; i++){
+            seen += snapshot[i];
+            if(seen >= rank){
+                return Math.min(highestValue(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public LatencySummary summary(){
+        return new LatencySummary(getCount(), getMean(), getValueAtPercentile(50), getValueAtPercentile(99),
+                                  getValueAtPercentile(99.9), getMax());
+    }
+
+    // below EXACT_LIMIT the value itself, above it the top SUB_BUCKET_BITS + 1 bits shifted past the exact buckets
+    static int bucket(long value) {
+        int shift = Math.max(0, 64 - SUB_BUCKET_BITS - 1 - Long.numberOfLeadingZeros(value));
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long lowestValue(int bucket) {
+        if(bucket < EXACT_LIMIT){
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return (bucket - ((long) shift << SUB_BUCKET_BITS)) << shift;
+    }
+
+    static long highestValue(int bucket) {
+        if(bucket < EXACT_LIMIT){
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long top = bucket - (shift << SUB_BUCKET_BITS);
+        return ((top + 1) << shift) - 1;
+    }
+}
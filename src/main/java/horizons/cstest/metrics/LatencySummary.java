@@ -0,0 +1,52 @@
+package horizons.cstest.metrics;
+
+// Percentiles of a LatencyHistogram at the time it was summarised, all in nanoseconds.
+// A bean so that JMX shows it as composite data.
+public class LatencySummary {
+    private final long count;
+    private final double mean;
+    private final long median;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public LatencySummary(long count, double mean, long median, long p99, long p999, long max) {
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getMedian() {
+        return median;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        // 1000 calls, mean 120.5 ns, median 95 ns, p99 800 ns, p99.9 2047 ns, max 5000 ns
+        return count + " calls, mean " + Math.round(mean * 10) / 10.0 + " ns, median " + median + " ns, p99 " + p99
+                + " ns, p99.9 " + p999 + " ns, max " + max + " ns";
+    }
+}
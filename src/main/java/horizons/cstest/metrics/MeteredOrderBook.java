@@ -0,0 +1,239 @@
+package horizons.cstest.metrics;
+
+import horizons.cstest.manager.ForwardingOrderBook;
+import horizons.cstest.manager.OrderBatch;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+/*
+ Records how long adds, cancels and aggregated reads of the book take, and keeps the number of orders and levels.
+ Metrics are turned on by wrapping a book and off by not wrapping it, so a book without them pays nothing.
+ Wrapped, a call costs two System.nanoTime reads and a histogram record on top of the book's own work.
+
+ A book written from one thread at a time has its counts read after each change made through this class, on the
+ writer's thread, and published with lazySet, which costs no fence, so they can be pulled from any thread even when
+ the book itself is not thread safe. Its counts are O(1) to read, so this adds little to a write. A book written from
+ many threads, such as ConcurrentOrderBook, is wrapped with threadSafe instead: its counts are read from the book when
+ they are pulled and writes pay nothing for them, as counts published by racing writers could land out of order.
+ Latencies can be pulled with the getters, or from JMX once registered.
+ * */
+public class MeteredOrderBook extends ForwardingOrderBook implements OrderBookMetricsMXBean {
+    private final LatencyHistogram addOrderLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelOrderLatency = new LatencyHistogram();
+    private final LatencyHistogram buyOrdersLatency = new LatencyHistogram();
+    private final LatencyHistogram sellOrdersLatency = new LatencyHistogram();
+    private final LatencyHistogram allOrdersLatency = new LatencyHistogram();
+    private final AtomicInteger orderCount = new AtomicInteger();
+    private final AtomicInteger buyLevelCount = new AtomicInteger();
+    private final AtomicInteger sellLevelCount = new AtomicInteger();
+    private final boolean threadSafe; // counts are read from the book when pulled
+
+    // for a book written from one thread at a time
+    public MeteredOrderBook(OrderBook delegate) {
+        this(delegate, false);
+    }
+
+    private MeteredOrderBook(OrderBook delegate, boolean threadSafe) {
+        super(delegate);
+        this.threadSafe = threadSafe;
+        counted();
+    }
+
+    // for a book safe to read and write from any thread
+    public static MeteredOrderBook threadSafe(OrderBook delegate) {
+        return new MeteredOrderBook(delegate, true);
+    }
+
+    @Override
+    public long addOrder(Order order){
+        long start = System.nanoTime();
+        long orderId = delegate.addOrder(order);
+        addOrderLatency.record(System.nanoTime() - start);
+        counted();
+        return orderId;
+    }
+
+    @Override
+    public boolean cancelOrder(long orderId){
+        long start = System.nanoTime();
+        boolean cancelled = delegate.cancelOrder(orderId);
+        cancelOrderLatency.record(System.nanoTime() - start);
+        counted();
+        return cancelled;
+    }
+
+    @Override
+    public boolean cancelOrder(Order order){
+        long start = System.nanoTime();
+        boolean cancelled = delegate.cancelOrder(order);
+        cancelOrderLatency.record(System.nanoTime() - start);
+        counted();
+        return cancelled;
+    }
+
+    @Override
+    public boolean amendOrder(long orderId, long price, double quantity){
+        boolean amended = delegate.amendOrder(orderId, price, quantity);
+        counted();
+        return amended;
+    }
+
+    @Override
+    public List<Long> addOrders(Collection<Order> orders){
+        List<Long> orderIds = delegate.addOrders(orders);
+        counted();
+        return orderIds;
+    }
+
+    @Override
+    public int cancelOrders(Collection<Long> orderIds){
+        int cancelled = delegate.cancelOrders(orderIds);
+        counted();
+        return cancelled;
+    }
+
+    @Override
+    public List<Long> applyBatch(OrderBatch batch){
+        List<Long> orderIds = delegate.applyBatch(batch);
+        counted();
+        return orderIds;
+    }
+
+    @Override
+    public int cancelAllForTrader(String trader){
+        int cancelled = delegate.cancelAllForTrader(trader);
+        counted();
+        return cancelled;
+    }
+
+    @Override
+    public void restoreOrders(Map<Long, Order> orders, long nextOrderId){
+        delegate.restoreOrders(orders, nextOrderId);
+        counted();
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedBuyOrders(){
+        long start = System.nanoTime();
+        List<AggregatedOrder> levels = delegate.getAggregatedBuyOrders();
+        buyOrdersLatency.record(System.nanoTime() - start);
+        return levels;
+    }
+
+    @Override
+    public List<AggregatedOrder> getAggregatedSellOrders(){
+        long start = System.nanoTime();
+        List<AggregatedOrder> levels = delegate.getAggregatedSellOrders();
+        sellOrdersLatency.record(System.nanoTime() - start);
+        return levels;
+    }
+
+    @Override
+    public List<AggregatedOrder> getAllAggregatedOrders(){
+        long start = System.nanoTime();
+        List<AggregatedOrder> levels = delegate.getAllAggregatedOrders();
+        allOrdersLatency.record(System.nanoTime() - start);
+        return levels;
+    }
+
+    // unless thread safe, the counts of the last change, not the book's, which may not be safe to read from this thread
+    @Override
+    public int getOrderCount(){
+        return threadSafe ? delegate.getOrderCount() : orderCount.get();
+    }
+
+    @Override
+    public int getLevelCount(OrderSide side){
+        if(side == null){
+            throw new IllegalArgumentException("Check side argument!");
+        }
+        if(threadSafe){
+            return delegate.getLevelCount(side);
+        }
+        return OrderSide.BUY == side ? buyLevelCount.get() : sellLevelCount.get();
+    }
+
+    @Override
+    public int getBuyLevelCount(){
+        return getLevelCount(OrderSide.BUY);
+    }
+
+    @Override
+    public int getSellLevelCount(){
+        return getLevelCount(OrderSide.SELL);
+    }
+
+    @Override
+    public LatencySummary getAddOrderLatency(){
+        return addOrderLatency.summary();
+    }
+
+    @Override
+    public LatencySummary getCancelOrderLatency(){
+        return cancelOrderLatency.summary();
+    }
+
+    @Override
+    public LatencySummary getAggregatedBuyOrdersLatency(){
+        return buyOrdersLatency.summary();
+    }
+
+    @Override
+    public LatencySummary getAggregatedSellOrdersLatency(){
+        return sellOrdersLatency.summary();
+    }
+
+    @Override
+    public LatencySummary getAllAggregatedOrdersLatency(){
+        return allOrdersLatency.summary();
+    }
+
+    // registers with the platform MBean server as horizons.cstest:type=OrderBook,name=<name>
+    public ObjectName register(String name){
+        if(isBlank(name)){
+            throw new IllegalArgumentException("Check name argument!");
+        }
+        try {
+            ObjectName objectName = objectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        }
+        catch(JMException e){
+            throw new IllegalStateException("Could not register order book metrics " + name + "!", e);
+        }
+    }
+
+    public void unregister(String name){
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName(name));
+        }
+        catch(JMException e){
+            throw new IllegalStateException("Could not unregister order book metrics " + name + "!", e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws JMException {
+        return new ObjectName("horizons.cstest:type=OrderBook,name=" + ObjectName.quote(name));
+    }
+
+    private void counted() {
+        if(threadSafe){
+            return;
+        }
+        orderCount.lazySet(delegate.getOrderCount());
+        buyLevelCount.lazySet(delegate.getLevelCount(OrderSide.BUY));
+        sellLevelCount.lazySet(delegate.getLevelCount(OrderSide.SELL));
+    }
+}
@@ -0,0 +1,22 @@
+package horizons.cstest.metrics;
+
+// What MeteredOrderBook exposes over JMX, latencies in nanoseconds.
+public interface OrderBookMetricsMXBean {
+
+    LatencySummary getAddOrderLatency();
+
+    LatencySummary getCancelOrderLatency(); // by id and by order
+
+    LatencySummary getAggregatedBuyOrdersLatency();
+
+    LatencySummary getAggregatedSellOrdersLatency();
+
+    LatencySummary getAllAggregatedOrdersLatency();
+
+    // as of the last change made through the metered book
+    int getOrderCount();
+
+    int getBuyLevelCount();
+
+    int getSellLevelCount();
+}
@@ -1,13 +1,20 @@
 package horizons.cstest.model;
 
+import static horizons.cstest.model.Quantity.toKg;
+import static horizons.cstest.model.Quantity.toUnits;
+
 public class AggregatedOrder {
 
     // contains all order information except trader details aggregated on order side and price.
     private final OrderSide side;
-    private final Long price;
-    private final double quantity;
+    private final long price;
+    private final long quantity; // in grams, see Quantity
 
     public AggregatedOrder(OrderSide side, long price, double quantity) {
+        this(toUnits(quantity), side, price);
+    }
+
+    private AggregatedOrder(long quantity, OrderSide side, long price) {
         if(side == null || price <= 0 || quantity <= 0){
             throw new IllegalArgumentException("Check constructor arguments!");
         }
@@ -16,11 +23,20 @@ public class AggregatedOrder {
         this.quantity = quantity;
     }
 
+    // quantity given in grams
+    public static AggregatedOrder ofUnits(OrderSide side, long price, long quantity) {
+        return new AggregatedOrder(quantity, side, price);
+    }
+
     public long getPrice() {
         return price;
     }
 
-    public double getQuantity() {
+    public double getQuantity() { // in kg
+        return toKg(quantity);
+    }
+
+    public long getQuantityUnits() { // in grams
         return quantity;
     }
 
@@ -31,7 +47,7 @@ public class AggregatedOrder {
     @Override
     public String toString() {
         // 5.5 kg for £306
-        return quantity + " kg for £" + price;
+        return toKg(quantity) + " kg for £" + price;
     }
 
     @Override
@@ -39,19 +55,17 @@ public class AggregatedOrder {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         AggregatedOrder that = (AggregatedOrder) o;
-        return Double.compare(that.quantity, quantity) == 0 &&
+        return quantity == that.quantity &&
                 side == that.side &&
-                price.equals(that.price);
+                price == that.price;
     }
 
     @Override
     public int hashCode() {
         int result;
-        long temp;
         result = side.hashCode();
-        result = 31 * result + price.hashCode();
-        temp = Double.doubleToLongBits(quantity);
-        result = 31 * result + (int) (temp ^ (temp >>> 32));
+        result = 31 * result + (int) (price ^ (price >>> 32));
+        result = 31 * result + (int) (quantity ^ (quantity >>> 32));
         return result;
     }
 }
@@ -0,0 +1,92 @@
+package horizons.cstest.model;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+public class Fill {
+
+    // a trade between an incoming order and an order resting on the opposite side, at the resting order's price
+    private final long restingOrderId;
+    private final long incomingOrderId;
+    private final OrderSide side; // side of the incoming order
+    private final long price;
+    private final long quantity; // in grams, see Quantity
+    private final String restingTrader;
+    private final String incomingTrader;
+
+    public Fill(long restingOrderId, long incomingOrderId, OrderSide side, long price, long quantity,
+                String restingTrader, String incomingTrader) {
+        if(side == null || price <= 0 || quantity <= 0 || restingTrader == null || incomingTrader == null){
+            throw new IllegalArgumentException("Check constructor arguments!");
+        }
+        this.restingOrderId = restingOrderId;
+        this.incomingOrderId = incomingOrderId;
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+        this.restingTrader = restingTrader;
+        this.incomingTrader = incomingTrader;
+    }
+
+    public long getRestingOrderId() {
+        return restingOrderId;
+    }
+
+    public long getIncomingOrderId() {
+        return incomingOrderId;
+    }
+
+    public OrderSide getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public double getQuantity() { // in kg
+        return toKg(quantity);
+    }
+
+    public long getQuantityUnits() { // in grams
+        return quantity;
+    }
+
+    public String getRestingTrader() {
+        return restingTrader;
+    }
+
+    public String getIncomingTrader() {
+        return incomingTrader;
+    }
+
+    @Override
+    public String toString() {
+        // BUY: 1.5 kg at £306 [user2 from user1]
+        return side + ": " + toKg(quantity) + " kg at £" + price + " [" + incomingTrader + " from " + restingTrader + ']';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Fill fill = (Fill) o;
+        return restingOrderId == fill.restingOrderId &&
+                incomingOrderId == fill.incomingOrderId &&
+                price == fill.price &&
+                quantity == fill.quantity &&
+                side == fill.side &&
+                restingTrader.equals(fill.restingTrader) &&
+                incomingTrader.equals(fill.incomingTrader);
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = (int) (restingOrderId ^ (restingOrderId >>> 32));
+        result = 31 * result + (int) (incomingOrderId ^ (incomingOrderId >>> 32));
+        result = 31 * result + side.hashCode();
+        result = 31 * result + (int) (price ^ (price >>> 32));
+        result = 31 * result + (int) (quantity ^ (quantity >>> 32));
+        return result;
+    }
+}
@@ -0,0 +1,65 @@
+package horizons.cstest.model;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+public class LevelChange {
+
+    // new aggregated quantity of a price level, 0 once the level is removed from the board.
+    private final OrderSide side;
+    private final long price;
+    private final long quantity; // in grams, see Quantity
+
+    public LevelChange(OrderSide side, long price, long quantity) {
+        if(side == null || price <= 0 || quantity < 0){
+            throw new IllegalArgumentException("Check constructor arguments!");
+        }
+        this.side = side;
+        this.price = price;
+        this.quantity = quantity;
+    }
+
+    public OrderSide getSide() {
+        return side;
+    }
+
+    public long getPrice() {
+        return price;
+    }
+
+    public double getQuantity() { // in kg
+        return toKg(quantity);
+    }
+
+    public long getQuantityUnits() { // in grams
+        return quantity;
+    }
+
+    public boolean isRemoved() {
+        return quantity == 0;
+    }
+
+    @Override
+    public String toString() {
+        // BUY: 5.5 kg for £306 or SELL: removed £306
+        return side + ": " + (isRemoved() ? "removed" : toKg(quantity) + " kg for") + " £" + price;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        LevelChange that = (LevelChange) o;
+        return price == that.price &&
+                quantity == that.quantity &&
+                side == that.side;
+    }
+
+    @Override
+    public int hashCode() {
+        int result;
+        result = side.hashCode();
+        result = 31 * result + (int) (price ^ (price >>> 32));
+        result = 31 * result + (int) (quantity ^ (quantity >>> 32));
+        return result;
+    }
+}
@@ -1,16 +1,45 @@
 package horizons.cstest.model;
 
+import java.util.Objects;
+
+import static horizons.cstest.model.Quantity.toKg;
+import static horizons.cstest.model.Quantity.toUnits;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+/*
+ An order holds only primitives besides its side: the trader is interned once in a registry shared by all orders
+ and kept as its int id, so orders of the same trader do not each carry a copy of the name and comparing or hashing
+ orders never touches a string.
+ The registry, see traders(), lives as long as this class: a name is never released since any order still around
+ may refer to it. It holds at most MAX_TRADERS names, set by the horizons.cstest.maxTraders system property and a
+ million by default. Orders of traders that come after it is full keep their name instead of an id, so creating an
+ order never fails on what other orders did before it, those orders just cost and compare like a String.
+ * */
 public class Order {
+    public static final int MAX_TRADERS = Integer.getInteger("horizons.cstest.maxTraders", 1 << 20);
+
+    private static final TraderRegistry TRADERS = new TraderRegistry(MAX_TRADERS);
+
     private final OrderSide side;
     private final long price; // assuming price is in whole pounds
-    private final double quantity; // weight of the order
-    private final String trader;
+    private final long quantity; // weight of the order in grams, see Quantity
+    private final int trader; // id in traders(), -1 for a trader that came once the registry was full
+    private final String traderName; // null unless trader is -1
 
     public Order(OrderSide side, long price, double quantity, String trader)
     {
-        if(side == null || price <= 0 || quantity <= 0 || isBlank(trader)){
+        this(toUnits(quantity), side, price, trader);
+    }
+
+    private Order(long quantity, OrderSide side, long price, String trader)
+    {
+        // the name is only registered for an order that is valid otherwise
+        this(quantity, side, price, side == null || price <= 0 || quantity <= 0 || isBlank(trader) ? -1 : TRADERS.tryIntern(trader), trader);
+    }
+
+    private Order(long quantity, OrderSide side, long price, int trader, String traderName)
+    {
+        if(side == null || price <= 0 || quantity <= 0 || (trader < 0 ? isBlank(traderName) : trader >= TRADERS.size())){
             throw new IllegalArgumentException("Check constructor arguments!");
         }
 
@@ -18,6 +47,32 @@ public class Order {
         this.price = price;
         this.quantity = quantity;
         this.trader = trader;
+        this.traderName = trader < 0 ? traderName : null;
+    }
+
+    // quantity given in grams
+    public static Order ofUnits(OrderSide side, long price, long quantity, String trader){
+        return new Order(quantity, side, price, trader);
+    }
+
+    // quantity given in grams, trader given by its id in traders()
+    public static Order ofUnits(OrderSide side, long price, long quantity, int traderId){
+        return new Order(quantity, side, price, traderId, null);
+    }
+
+    // as created for a trader that came once the registry was full, for tests
+    static Order uninterned(OrderSide side, long price, long quantity, String trader){
+        return new Order(quantity, side, price, -1, trader);
+    }
+
+    // registry of the traders of all orders, shared by every book in the process
+    public static TraderRegistry traders(){
+        return TRADERS;
+    }
+
+    // same side and trader with another price and quantity in grams
+    public Order withUnits(long price, long quantity){
+        return new Order(quantity, side, price, trader, traderName);
     }
 
     public OrderSide getSide(){
@@ -28,18 +83,27 @@ public class Order {
         return price;
     }
 
-    public double getQuantity(){
+    public double getQuantity(){ // in kg
+        return toKg(quantity);
+    }
+
+    public long getQuantityUnits(){ // in grams
         return quantity;
     }
 
     public String getTrader(){
+        return trader < 0 ? traderName : TRADERS.name(trader);
+    }
+
+    // -1 when the trader has no id, see above
+    public int getTraderId(){
         return trader;
     }
 
     @Override
     public String toString() {
         // SELL: 1.2 kg for £310 [user]
-        return side + ": " + quantity + " kg for £" + price + " [" + trader + ']';
+        return side + ": " + toKg(quantity) + " kg for £" + price + " [" + getTrader() + ']';
     }
 
     @Override
@@ -48,20 +112,19 @@ public class Order {
         if (o == null || getClass() != o.getClass()) return false;
         Order order = (Order) o;
         return price == order.price &&
-                Double.compare(order.quantity, quantity) == 0 &&
+                quantity == order.quantity &&
                 side == order.side &&
-                trader.equals(order.trader);
+                trader == order.trader &&
+                Objects.equals(traderName, order.traderName);
     }
 
     @Override
     public int hashCode() {
         int result;
-        long temp;
-        result = side.hashCode();
+        result = side.ordinal();
         result = 31 * result + (int) (price ^ (price >>> 32));
-        temp = Double.doubleToLongBits(quantity);
-        result = 31 * result + (int) (temp ^ (temp >>> 32));
-        result = 31 * result + trader.hashCode();
+        result = 31 * result + (int) (quantity ^ (quantity >>> 32));
+        result = 31 * result + (trader < 0 ? traderName.hashCode() : trader);
         return result;
     }
 }
@@ -0,0 +1,17 @@
+package horizons.cstest.model;
+
+// Quantities are kept as a whole number of grams so that aggregating them is exact, kg are only used at the edges.
+public final class Quantity {
+    public static final long UNITS_PER_KG = 1000;
+
+    private Quantity() {
+    }
+
+    public static long toUnits(double kg) {
+        return Math.round(kg * UNITS_PER_KG);
+    }
+
+    public static double toKg(long units) {
+        return (double) units / UNITS_PER_KG;
+    }
+}
@@ -0,0 +1,94 @@
+package horizons.cstest.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.commons.lang3.StringUtils.isBlank;
+
+// Interns trader names to dense int ids so that orders can hold an int instead of a String.
+// Ids start at 0 and are never reused, names are few compared to orders so they are kept for as long as the registry,
+// which holds at most maxSize of them. Thread safe, only registering a name not seen before takes a lock.
+public class TraderRegistry {
+    private final int maxSize;
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile String[] names = new String[16];
+    private volatile int size; // written after the name, so a reader that sees the id also sees its name
+
+    public TraderRegistry() {
+        this(Integer.MAX_VALUE);
+    }
+
+    public TraderRegistry(int maxSize) {
+        if(maxSize <= 0){
+            throw new IllegalArgumentException("Check max size argument!");
+        }
+        this.maxSize = maxSize;
+    }
+
+    // returns the id of the trader, registering it on first use
+    // throws IllegalStateException when a new trader would go over maxSize
+    public int intern(String trader){
+        int id = tryIntern(trader);
+        if(id < 0){
+            throw new IllegalStateException("Trader registry is full!");
+        }
+        return id;
+    }
+
+    // same as above with -1 rather than an exception when the trader is new and the registry is full
+    public int tryIntern(String trader){
+        int id = id(trader);
+        if(id >= 0){
+            return id;
+        }
+        if(isBlank(trader)){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        lock.lock();
+        try {
+            id = id(trader);
+            if(id < 0){
+                if(size == maxSize){
+                    return -1;
+                }
+                id = size;
+                String[] current = names;
+                if(id == current.length){
+                    current = Arrays.copyOf(current, (int) Math.min((long) id * 2, maxSize));
+                    names = current;
+                }
+                current[id] = trader;
+                size = id + 1;
+                ids.put(trader, id);
+            }
+            return id;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    // -1 if the trader was never registered
+    public int id(String trader){
+        Integer id = null == trader ? null : ids.get(trader);
+        return null == id ? -1 : id;
+    }
+
+    public String name(int id){
+        if(id < 0 || id >= size){
+            throw new IllegalArgumentException("Check id argument!");
+        }
+        return names[id];
+    }
+
+    public int size(){
+        return size;
+    }
+
+    public int maxSize(){
+        return maxSize;
+    }
+}
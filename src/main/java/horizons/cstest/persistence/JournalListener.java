@@ -0,0 +1,19 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.model.Order;
+
+// Events read back from an OrderJournal, timestamps are epoch nanoseconds taken when the event was journaled.
+public interface JournalListener {
+
+    void onAdd(long timestamp, long orderId, Order order);
+
+    void onCancel(long timestamp, long orderId);
+
+    // cancel of the oldest resting order equal to the given one
+    void onCancelOrder(long timestamp, Order order);
+
+    void onCancelTrader(long timestamp, String trader);
+
+    // new price and quantity in grams of a resting order
+    void onAmend(long timestamp, long orderId, long price, long quantity);
+}
@@ -0,0 +1,373 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.manager.FillListener;
+import horizons.cstest.manager.ForwardingOrderBook;
+import horizons.cstest.manager.OrderBatch;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.model.Fill;
+import horizons.cstest.model.Order;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import static horizons.cstest.model.Quantity.toUnits;
+
+/*
+ Journals every change made through it, so the book can be rebuilt by OrderBookRecovery after a restart.
+
+ A change is applied to the book first, since only then its order ids are known, and journaled before the call
+ returns; writes are serialised so the journal holds them in the order they were applied. Once the call has returned
+ the change is as durable as the journal's sync bounds make it, see scheduleSync. Reads go straight to the book.
+ The book must only be written to through this class.
+
+ A matching book has to be created through matching, so that its fills reach the journal. Matching changes orders
+ nobody asked to change, so what gets journaled then is the outcome rather than the call: resting orders that were
+ filled are journaled as cancelled or amended to what is left of them, then new or amended orders as what rests of
+ them, an order filled in full as added and cancelled again so that its id is not handed out twice. Every record
+ leaves a book that does not cross, so replaying the journal never matches anything.
+ * */
+public class JournaledOrderBook extends ForwardingOrderBook implements Closeable {
+    private final OrderJournal journal;
+    private final Fills fills; // null unless the book matches
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private long lastOrderId;
+
+    public JournaledOrderBook(OrderBook delegate, OrderJournal journal) {
+        this(delegate, journal, 0, null);
+        delegate.forEachOrder((orderId, order) -> lastOrderId = Math.max(lastOrderId, orderId));
+    }
+
+    // lastOrderId also covers orders that were cancelled again, so snapshots never let their ids be reused
+    JournaledOrderBook(OrderBook delegate, OrderJournal journal, long lastOrderId, Fills fills) {
+        super(delegate);
+        if(journal == null){
+            throw new IllegalArgumentException("Check journal argument!");
+        }
+        this.journal = journal;
+        this.fills = fills;
+        this.lastOrderId = lastOrderId;
+    }
+
+    // new matching book, e.g. matching(SimpleOrderBook::new, journal, fillListener)
+    // newOrderBook is given the listener the book has to report its fills to, they are passed on to fillListener
+    public static JournaledOrderBook matching(Function<FillListener, OrderBook> newOrderBook, OrderJournal journal, FillListener fillListener) {
+        Fills fills = new Fills(fillListener);
+        return new JournaledOrderBook(fills.newOrderBook(newOrderBook), journal, 0, fills);
+    }
+
+    @Override
+    public long addOrder(Order order){
+        writeLock.lock();
+        try {
+            clearFills();
+            long orderId = delegate.addOrder(order);
+            if(null != fills){
+                filled(Collections.emptySet());
+                matched(orderId, order);
+            }
+            else {
+                added(orderId, order);
+            }
+            return orderId;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean cancelOrder(long orderId){
+        writeLock.lock();
+        try {
+            boolean cancelled = delegate.cancelOrder(orderId);
+            if(cancelled){
+                journal.cancel(orderId);
+            }
+            return cancelled;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean cancelOrder(Order order){
+        writeLock.lock();
+        try {
+            boolean cancelled = delegate.cancelOrder(order);
+            if(cancelled){
+                journal.cancel(order);
+            }
+            return cancelled;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean amendOrder(long orderId, long price, double quantity){
+        writeLock.lock();
+        try {
+            clearFills();
+            boolean amended = delegate.amendOrder(orderId, price, quantity);
+            if(amended && null != fills){
+                filled(Collections.emptySet());
+                Order resting = delegate.getOrder(orderId);
+                if(null == resting){
+                    journal.cancel(orderId);
+                }
+                else {
+                    journal.amend(orderId, resting.getPrice(), resting.getQuantityUnits());
+                }
+            }
+            else if(amended){
+                journal.amend(orderId, price, toUnits(quantity));
+            }
+            return amended;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Long> addOrders(Collection<Order> orders){
+        writeLock.lock();
+        try {
+            clearFills();
+            List<Long> orderIds = delegate.addOrders(orders);
+            added(orderIds, orders);
+            return orderIds;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int cancelOrders(Collection<Long> orderIds){
+        writeLock.lock();
+        try {
+            int cancelled = delegate.cancelOrders(orderIds);
+            // ids that were not resting are journaled too, cancelling them again on replay changes nothing
+            if(cancelled > 0){
+                for(long orderId : orderIds){
+                    journal.cancel(orderId);
+                }
+            }
+            return cancelled;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Long> applyBatch(OrderBatch batch){
+        writeLock.lock();
+        try {
+            clearFills();
+            List<Long> orderIds = delegate.applyBatch(batch);
+            added(orderIds, batch.getOrdersToAdd());
+            for(long orderId : batch.getOrderIdsToCancel()){
+                journal.cancel(orderId);
+            }
+            return orderIds;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int cancelAllForTrader(String trader){
+        writeLock.lock();
+        try {
+            int cancelled = delegate.cancelAllForTrader(trader);
+            if(cancelled > 0){
+                journal.cancelAllForTrader(trader);
+            }
+            return cancelled;
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void restoreOrders(Map<Long, Order> orders, long nextOrderId){
+        writeLock.lock();
+        try {
+            delegate.restoreOrders(orders, nextOrderId);
+            for(Map.Entry<Long, Order> order : orders.entrySet()){
+                added(order.getKey(), order.getValue());
+            }
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    // writes the resting orders together with the journal position they correspond to
+    // then rolls the journal, which only keeps what is needed to recover from this snapshot on
+    public OrderBookSnapshot snapshot(Path file) throws IOException {
+        OrderBookSnapshot snapshot;
+        writeLock.lock();
+        try {
+            Map<Long, Order> orders = new LinkedHashMap<>();
+            delegate.forEachOrder(orders::put);
+            snapshot = new OrderBookSnapshot(journal.position(), lastOrderId + 1, orders, delegate.getAllAggregatedOrders());
+            // the snapshot must not get ahead of what the journal has on disk
+            journal.sync();
+        }
+        finally {
+            writeLock.unlock();
+        }
+        snapshot.write(file);
+        writeLock.lock();
+        try {
+            journal.roll(snapshot.getJournalPosition());
+        }
+        finally {
+            writeLock.unlock();
+        }
+        return snapshot;
+    }
+
+    public void sync(){
+        writeLock.lock();
+        try {
+            journal.sync();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    // syncs the journal once its oldest unsynced record is maxSyncNanos old, even when no write comes to check it
+    // records then reach the disk at the latest maxSyncNanos plus a period after they were written
+    public ScheduledFuture<?> scheduleSync(ScheduledExecutorService scheduler, long period, TimeUnit unit){
+        if(scheduler == null || period <= 0 || unit == null){
+            throw new IllegalArgumentException("Check schedule arguments!");
+        }
+        return scheduler.scheduleWithFixedDelay(this::syncIfDue, period, period, unit);
+    }
+
+    private void syncIfDue() {
+        writeLock.lock();
+        try {
+            journal.syncIfDue();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeLock.lock();
+        try {
+            journal.close();
+        }
+        finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void added(List<Long> orderIds, Collection<Order> orders) {
+        if(null != fills){
+            filled(new HashSet<>(orderIds));
+        }
+        Iterator<Long> orderId = orderIds.iterator();
+        for(Order order : orders){
+            if(null != fills){
+                matched(orderId.next(), order);
+            }
+            else {
+                added(orderId.next(), order);
+            }
+        }
+    }
+
+    private void clearFills() {
+        if(null != fills){
+            fills.restingOrderIds.clear();
+        }
+    }
+
+    // journals what is left of the resting orders filled by the last call, except for the orders the call added
+    private void filled(Set<Long> addedOrderIds) {
+        for(long orderId : fills.restingOrderIds){
+            if(addedOrderIds.contains(orderId)){
+                continue;
+            }
+            Order resting = delegate.getOrder(orderId);
+            if(null == resting){
+                journal.cancel(orderId);
+            }
+            else {
+                journal.amend(orderId, resting.getPrice(), resting.getQuantityUnits());
+            }
+        }
+        fills.restingOrderIds.clear();
+    }
+
+    // journals what rests of an added order after matching
+    private void matched(long orderId, Order order) {
+        Order resting = delegate.getOrder(orderId);
+        if(null != resting){
+            added(orderId, resting);
+        }
+        else {
+            added(orderId, order);
+            journal.cancel(orderId);
+        }
+    }
+
+    private void added(long orderId, Order order) {
+        journal.add(orderId, order);
+        lastOrderId = Math.max(lastOrderId, orderId);
+    }
+
+    // fill listener of a matching book, remembers which resting orders were filled before passing the fills on
+    static final class Fills implements FillListener {
+        private final FillListener fillListener;
+        private final Set<Long> restingOrderIds = new LinkedHashSet<>();
+
+        Fills(FillListener fillListener) {
+            if(fillListener == null){
+                throw new IllegalArgumentException("Check fill listener argument!");
+            }
+            this.fillListener = fillListener;
+        }
+
+        OrderBook newOrderBook(Function<FillListener, OrderBook> newOrderBook) {
+            if(newOrderBook == null){
+                throw new IllegalArgumentException("Check order book argument!");
+            }
+            return newOrderBook.apply(this);
+        }
+
+        @Override
+        public void onFill(Fill fill) {
+            restingOrderIds.add(fill.getRestingOrderId());
+            fillListener.onFill(fill);
+        }
+    }
+}
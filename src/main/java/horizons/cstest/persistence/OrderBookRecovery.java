@@ -0,0 +1,125 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.manager.FillListener;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.model.Order;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+/*
+ Rebuilds a book from its latest snapshot and the journal written after it, then keeps journaling to the same file.
+
+ Replayed adds are buffered and restored in batches under their original ids, an add cancelled again before the
+ buffer is flushed never reaches the book, one amended before then is restored as amended. Cancels by order or by
+ trader depend on what is resting, so the buffer is flushed before them, and before amends of orders already in the
+ book.
+ * */
+public final class OrderBookRecovery {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private OrderBookRecovery() {
+    }
+
+    // the book must be empty, the snapshot file may not exist yet
+    public static JournaledOrderBook recover(OrderBook orderBook, Path snapshotFile, Path journalFile, int syncEvery) throws IOException {
+        return recover(orderBook, snapshotFile, journalFile, syncEvery, OrderJournal.DEFAULT_WINDOW_SIZE);
+    }
+
+    // for a matching book, see JournaledOrderBook.matching, newOrderBook has to return an empty book
+    public static JournaledOrderBook recover(Function<FillListener, OrderBook> newOrderBook, FillListener fillListener, Path snapshotFile, Path journalFile, int syncEvery) throws IOException {
+        return recover(newOrderBook, fillListener, snapshotFile, journalFile, syncEvery, OrderJournal.DEFAULT_WINDOW_SIZE);
+    }
+
+    static JournaledOrderBook recover(Function<FillListener, OrderBook> newOrderBook, FillListener fillListener, Path snapshotFile, Path journalFile, int syncEvery, int windowSize) throws IOException {
+        JournaledOrderBook.Fills fills = new JournaledOrderBook.Fills(fillListener);
+        return recover(fills.newOrderBook(newOrderBook), fills, snapshotFile, journalFile, syncEvery, windowSize);
+    }
+
+    static JournaledOrderBook recover(OrderBook orderBook, Path snapshotFile, Path journalFile, int syncEvery, int windowSize) throws IOException {
+        return recover(orderBook, null, snapshotFile, journalFile, syncEvery, windowSize);
+    }
+
+    // nothing in the journal crosses, so replaying it fills nothing
+    private static JournaledOrderBook recover(OrderBook orderBook, JournaledOrderBook.Fills fills, Path snapshotFile, Path journalFile, int syncEvery, int windowSize) throws IOException {
+        if(orderBook == null || orderBook.getOrderCount() != 0){
+            throw new IllegalArgumentException("Check orderBook argument!");
+        }
+        long journalPosition = 0;
+        OrderBookSnapshot snapshot = OrderBookSnapshot.read(snapshotFile);
+        Replay replay = new Replay(orderBook);
+        if(null != snapshot){
+            snapshot.restoreInto(orderBook);
+            journalPosition = snapshot.getJournalPosition();
+            replay.nextOrderId = snapshot.getNextOrderId();
+        }
+        OrderJournal.replay(journalFile, journalPosition, replay, windowSize);
+        replay.flush();
+        return new JournaledOrderBook(orderBook, OrderJournal.open(journalFile, syncEvery, windowSize), replay.nextOrderId - 1, fills);
+    }
+
+    private static class Replay implements JournalListener {
+        private final OrderBook orderBook;
+        private final Map<Long, Order> added = new LinkedHashMap<>();
+        private final List<Long> cancelled = new ArrayList<>();
+        private long nextOrderId = 1;
+
+        Replay(OrderBook orderBook) {
+            this.orderBook = orderBook;
+        }
+
+        @Override
+        public void onAdd(long timestamp, long orderId, Order order){
+            added.put(orderId, order);
+            // ids of orders cancelled during the replay must not be handed out again either
+            nextOrderId = Math.max(nextOrderId, orderId + 1);
+            if(added.size() == BUFFER_SIZE){
+                flush();
+            }
+        }
+
+        @Override
+        public void onCancel(long timestamp, long orderId){
+            if(null == added.remove(orderId)){
+                cancelled.add(orderId);
+            }
+        }
+
+        @Override
+        public void onCancelOrder(long timestamp, Order order){
+            flush();
+            orderBook.cancelOrder(order);
+        }
+
+        @Override
+        public void onCancelTrader(long timestamp, String trader){
+            flush();
+            orderBook.cancelAllForTrader(trader);
+        }
+
+        @Override
+        public void onAmend(long timestamp, long orderId, long price, long quantity){
+            Order order = added.get(orderId);
+            if(null != order){
+                added.put(orderId, order.withUnits(price, quantity));
+                return;
+            }
+            flush();
+            orderBook.amendOrder(orderId, price, toKg(quantity));
+        }
+
+        void flush() {
+            orderBook.restoreOrders(added, nextOrderId);
+            orderBook.cancelOrders(cancelled);
+            added.clear();
+            cancelled.clear();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+/*
+ Resting orders of a book at a point of its journal, so recovery only has to replay the journal from there.
+
+ The file holds the journal position and next order id, the trader names once each, the orders in the order they were
+ added and the aggregated levels of both sides to check the restored book against. It is written to a temporary file
+ and moved over the previous snapshot once on disk, so a crash while writing leaves the previous snapshot in place.
+ The directory is synced after the move, so the new snapshot is what a restart finds once write has returned.
+ * */
+public class OrderBookSnapshot {
+    private static final int MAGIC = 0x534E4150;
+    private static final int VERSION = 1;
+    private static final int RESTORE_CHUNK = 1 << 16;
+
+    private final long journalPosition;
+    private final long nextOrderId;
+    private final Map<Long, Order> orders;
+    private final List<AggregatedOrder> levels;
+
+    OrderBookSnapshot(long journalPosition, long nextOrderId, Map<Long, Order> orders, List<AggregatedOrder> levels) {
+        this.journalPosition = journalPosition;
+        this.nextOrderId = nextOrderId;
+        this.orders = orders;
+        this.levels = levels;
+    }
+
+    public long getJournalPosition(){
+        return journalPosition;
+    }
+
+    public long getNextOrderId(){
+        return nextOrderId;
+    }
+
+    public int getOrderCount(){
+        return orders.size();
+    }
+
+    public void write(Path file) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileOutputStream fileStream = new FileOutputStream(temporaryFile.toFile());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileStream, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(journalPosition);
+            out.writeLong(nextOrderId);
+
+            Map<String, Integer> traders = new LinkedHashMap<>();
+            for(Order order : orders.values()){
+                traders.putIfAbsent(order.getTrader(), traders.size());
+            }
+            out.writeInt(traders.size());
+            for(String trader : traders.keySet()){
+                out.writeUTF(trader);
+            }
+            out.writeInt(orders.size());
+            for(Map.Entry<Long, Order> entry : orders.entrySet()){
+                Order order = entry.getValue();
+                out.writeLong(entry.getKey());
+                out.writeByte(order.getSide().ordinal());
+                out.writeLong(order.getPrice());
+                out.writeLong(order.getQuantityUnits());
+                out.writeInt(traders.get(order.getTrader()));
+            }
+            out.writeInt(levels.size());
+            for(AggregatedOrder level : levels){
+                out.writeByte(level.getSide().ordinal());
+                out.writeLong(level.getPrice());
+                out.writeLong(level.getQuantityUnits());
+            }
+            out.flush();
+            fileStream.getFD().sync();
+        }
+        Files.move(temporaryFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        OrderJournal.syncDirectory(file);
+    }
+
+    // returns null when there is no snapshot yet
+    public static OrderBookSnapshot read(Path file) throws IOException {
+        if(!Files.exists(file)){
+            return null;
+        }
+        try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if(in.readInt() != MAGIC || in.readInt() != VERSION){
+                throw new IOException("Not a snapshot: " + file);
+            }
+            long journalPosition = in.readLong();
+            long nextOrderId = in.readLong();
+
+            String[] traders = new String[in.readInt()];
+            for(int i = 0; i < traders.length; i++){
+                traders[i] = in.readUTF();
+            }
+            int orderCount = in.readInt();
+            Map<Long, Order> orders = new LinkedHashMap<>(orderCount * 2);
+            for(int i = 0; i < orderCount; i++){
+                long orderId = in.readLong();
+                OrderSide side = OrderSide.values()[in.readByte()];
+                long price = in.readLong();
+                long quantity = in.readLong();
+                orders.put(orderId, Order.ofUnits(side, price, quantity, traders[in.readInt()]));
+            }
+            int levelCount = in.readInt();
+            List<AggregatedOrder> levels = new ArrayList<>(levelCount);
+            for(int i = 0; i < levelCount; i++){
+                OrderSide side = OrderSide.values()[in.readByte()];
+                long price = in.readLong();
+                levels.add(AggregatedOrder.ofUnits(side, price, in.readLong()));
+            }
+            return new OrderBookSnapshot(journalPosition, nextOrderId, orders, levels);
+        }
+    }
+
+    // puts the orders back into an empty book and checks it ends up with the levels it had when the snapshot was taken
+    public void restoreInto(OrderBook orderBook){
+        Map<Long, Order> chunk = new LinkedHashMap<>();
+        for(Map.Entry<Long, Order> order : orders.entrySet()){
+            chunk.put(order.getKey(), order.getValue());
+            if(chunk.size() == RESTORE_CHUNK){
+                orderBook.restoreOrders(chunk, nextOrderId);
+                chunk.clear();
+            }
+        }
+        orderBook.restoreOrders(chunk, nextOrderId);
+
+        Map<String, AggregatedOrder> expected = new HashMap<>();
+        for(AggregatedOrder level : levels){
+            expected.put(level.getSide() + ":" + level.getPrice(), level);
+        }
+        List<AggregatedOrder> restored = orderBook.getAllAggregatedOrders();
+        for(AggregatedOrder level : restored){
+            if(!level.equals(expected.get(level.getSide() + ":" + level.getPrice()))){
+                throw new IllegalStateException("Restored level " + level + " does not match the snapshot!");
+            }
+        }
+        if(restored.size() != levels.size()){
+            throw new IllegalStateException("Restored " + restored.size() + " levels instead of " + levels.size() + "!");
+        }
+    }
+}
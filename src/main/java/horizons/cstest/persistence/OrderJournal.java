@@ -0,0 +1,442 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ Append-only binary journal of book events written through memory-mapped windows of the file.
+
+ Each record is [length][crc32 of body][body], the body being [type][timestamp][fields of the event]. The length is
+ written last, so a reader stops at the first record that is zero, torn or does not match its checksum, which is
+ where the next record gets appended after a restart. A record never spans two windows, the rest of a window that
+ cannot hold the next record is marked as skipped.
+
+ Records reach the file once the window is forced to disk: every syncEvery records (1 for a sync per event, 0 for no
+ bound on the count), once the oldest record not yet synced is maxSyncNanos old by the clock (0 for no bound on the
+ age), and whenever sync or close is called, so several events share one fsync. Either bound syncs on its own. The age
+ is checked as records are written and by syncIfDue, which has to be run on a timer for a journal that goes quiet not
+ to hold its last records back, see JournaledOrderBook.scheduleSync.
+
+ Positions are logical and keep growing across rolls. Rolling drops the windows before the one holding a position,
+ such as that of a snapshot just written: the rest is copied to a new file that is moved over the journal, whose first
+ window holds only a record of the position its second window starts at. A crash while rolling leaves either file in
+ place and the same positions valid in both. Moves over the journal, like those of snapshots, are made durable by
+ syncing the directory.
+ * */
+public class OrderJournal implements Closeable {
+    static final int DEFAULT_WINDOW_SIZE = 64 << 20;
+
+    private static final byte ADD = 1;
+    private static final byte CANCEL = 2;
+    private static final byte CANCEL_ORDER = 3;
+    private static final byte CANCEL_TRADER = 4;
+    private static final byte AMEND = 5;
+    private static final byte START = 6;
+    private static final int HEADER_SIZE = 8;
+    private static final int START_RECORD_SIZE = HEADER_SIZE + 1 + 8 + 8;
+    private static final int SKIP_TO_NEXT_WINDOW = -1;
+    private static final int MAX_RECORD_SIZE = HEADER_SIZE + 1 + 8 + 8 + 1 + 8 + 8 + 2 + 0xFFFF;
+
+    static final long DEFAULT_MAX_SYNC_NANOS = 1_000_000_000L;
+
+    private final Path file;
+    private final int windowSize;
+    private final int syncEvery;
+    private final long maxSyncNanos; // 0 for no bound
+    private final CRC32 crc = new CRC32();
+    private final LongSupplier clock; // epoch nanoseconds
+    private FileChannel channel;
+    private long shift; // logical position of the start of the file
+    private MappedByteBuffer window;
+    private long windowStart; // in the file
+    private int unsynced;
+    private long oldestUnsynced; // timestamp of the oldest record not synced yet
+    private long timestamp; // of the record being written
+
+    // position is in the file
+    private OrderJournal(Path file, FileChannel channel, long shift, long position, int windowSize, int syncEvery, long maxSyncNanos, LongSupplier clock) throws IOException {
+        this.file = file;
+        this.clock = clock;
+        this.channel = channel;
+        this.shift = shift;
+        this.windowSize = windowSize;
+        this.syncEvery = syncEvery;
+        this.maxSyncNanos = maxSyncNanos;
+        this.windowStart = position - position % windowSize;
+        this.window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        int offset = (int) (position - windowStart);
+        // whatever follows the last good record, such as a torn write, must not be mistaken for a record later
+        for(int i = offset; i < windowSize; i++){
+            window.put(i, (byte) 0);
+        }
+        window.position(offset);
+    }
+
+    // opens the journal for appending after its last good record, creating it if needed
+    // records are synced at the latest a second after they were written, provided writes or syncIfDue keep coming
+    public static OrderJournal open(Path file, int syncEvery) throws IOException {
+        return open(file, syncEvery, systemClock());
+    }
+
+    // same as above with events stamped by the given clock in epoch nanoseconds, as when writing synthetic events
+    public static OrderJournal open(Path file, int syncEvery, LongSupplier clock) throws IOException {
+        return open(file, syncEvery, DEFAULT_MAX_SYNC_NANOS, clock);
+    }
+
+    // same as above with records synced once the oldest of them is maxSyncNanos old, 0 for no such bound
+    public static OrderJournal open(Path file, int syncEvery, long maxSyncNanos, LongSupplier clock) throws IOException {
+        return open(file, syncEvery, DEFAULT_WINDOW_SIZE, maxSyncNanos, clock);
+    }
+
+    static OrderJournal open(Path file, int syncEvery, int windowSize) throws IOException {
+        return open(file, syncEvery, windowSize, DEFAULT_MAX_SYNC_NANOS, systemClock());
+    }
+
+    static OrderJournal open(Path file, int syncEvery, int windowSize, long maxSyncNanos, LongSupplier clock) throws IOException {
+        if(syncEvery < 0 || windowSize < MAX_RECORD_SIZE || maxSyncNanos < 0 || clock == null){
+            throw new IllegalArgumentException("Check journal arguments!");
+        }
+        FileChannel channel = FileChannel.open(file, CREATE, READ, WRITE);
+        try {
+            long shift = shift(channel, windowSize);
+            long position = replay(channel, shift == 0 ? 0 : windowSize, null, windowSize);
+            return new OrderJournal(file, channel, shift, position, windowSize, syncEvery, maxSyncNanos, clock);
+        }
+        catch(IOException | RuntimeException e){
+            channel.close();
+            throw e;
+        }
+    }
+
+    // wall clock at the time of opening advanced by System.nanoTime, so timestamps have nanosecond resolution
+    private static LongSupplier systemClock() {
+        long epochNanosBase = System.currentTimeMillis() * 1_000_000;
+        long nanoTimeBase = System.nanoTime();
+        return () -> epochNanosBase + System.nanoTime() - nanoTimeBase;
+    }
+
+    // reads the records from the given position on, returns the position after the last good record
+    public static long replay(Path file, long position, JournalListener listener) throws IOException {
+        return replay(file, position, listener, DEFAULT_WINDOW_SIZE);
+    }
+
+    static long replay(Path file, long position, JournalListener listener, int windowSize) throws IOException {
+        if(!Files.exists(file)){
+            return position;
+        }
+        try(FileChannel channel = FileChannel.open(file, READ)) {
+            long shift = shift(channel, windowSize);
+            if(position - shift < (shift == 0 ? 0 : windowSize)){
+                // the record there was dropped by a roll
+                throw new IllegalArgumentException("Check position argument!");
+            }
+            return shift + replay(channel, position - shift, listener, windowSize);
+        }
+    }
+
+    // same as above with positions in the file
+    private static long replay(FileChannel channel, long position, JournalListener listener, int windowSize) throws IOException {
+        CRC32 crc = new CRC32();
+        long size = channel.size();
+        while(position < size) {
+            long windowStart = position - position % windowSize;
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+            int offset = (int) (position - windowStart);
+            while(true) {
+                if(window.limit() - offset < HEADER_SIZE){
+                    if(window.limit() < windowSize){
+                        return windowStart + offset; // end of file
+                    }
+                    break;
+                }
+                int length = window.getInt(offset);
+                if(length == SKIP_TO_NEXT_WINDOW){
+                    break;
+                }
+                if(length <= 0 || length > window.limit() - offset - HEADER_SIZE){
+                    return windowStart + offset;
+                }
+                window.limit(offset + HEADER_SIZE + length).position(offset + HEADER_SIZE);
+                crc.reset();
+                crc.update(window);
+                window.limit(window.capacity());
+                if((int) crc.getValue() != window.getInt(offset + 4)){
+                    return windowStart + offset;
+                }
+                if(null != listener){
+                    window.position(offset + HEADER_SIZE);
+                    read(window, listener);
+                }
+                offset += HEADER_SIZE + length;
+            }
+            position = windowStart + windowSize;
+        }
+        return position;
+    }
+
+    // logical position of the start of the file, 0 unless the journal was rolled
+    private static long shift(FileChannel channel, int windowSize) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(START_RECORD_SIZE);
+        if(channel.read(record, 0) < START_RECORD_SIZE || record.getInt(0) != START_RECORD_SIZE - HEADER_SIZE || record.get(HEADER_SIZE) != START){
+            return 0;
+        }
+        CRC32 crc = new CRC32();
+        record.position(HEADER_SIZE);
+        crc.update(record);
+        if((int) crc.getValue() != record.getInt(4)){
+            return 0;
+        }
+        return record.getLong(HEADER_SIZE + 1 + 8) - windowSize;
+    }
+
+    public void add(long orderId, Order order){
+        byte[] trader = trader(order.getTrader());
+        int body = begin(ADD, 8 + 1 + 8 + 8 + 2 + trader.length);
+        window.putLong(orderId);
+        putOrder(order, trader);
+        end(body);
+    }
+
+    public void cancel(long orderId){
+        int body = begin(CANCEL, 8);
+        window.putLong(orderId);
+        end(body);
+    }
+
+    public void cancel(Order order){
+        byte[] trader = trader(order.getTrader());
+        int body = begin(CANCEL_ORDER, 1 + 8 + 8 + 2 + trader.length);
+        putOrder(order, trader);
+        end(body);
+    }
+
+    public void cancelAllForTrader(String trader){
+        byte[] traderBytes = trader(trader);
+        int body = begin(CANCEL_TRADER, 2 + traderBytes.length);
+        putTrader(traderBytes);
+        end(body);
+    }
+
+    // quantity in grams
+    public void amend(long orderId, long price, long quantity){
+        int body = begin(AMEND, 8 + 8 + 8);
+        window.putLong(orderId);
+        window.putLong(price);
+        window.putLong(quantity);
+        end(body);
+    }
+
+    // position the next record will be written at
+    public long position(){
+        return shift + windowStart + window.position();
+    }
+
+    public void sync(){
+        window.force();
+        unsynced = 0;
+    }
+
+    // syncs if the oldest record not synced yet is maxSyncNanos old, to be run on a timer but not alongside writes
+    public void syncIfDue(){
+        if(unsynced > 0 && maxSyncNanos > 0 && clock.getAsLong() - oldestUnsynced >= maxSyncNanos){
+            sync();
+        }
+    }
+
+    // records written since the last sync, for tests
+    int unsynced(){
+        return unsynced;
+    }
+
+    // drops the windows before the one holding the position, which must not be ahead of this journal
+    // returns false if there was nothing to drop
+    public boolean roll(long position) throws IOException {
+        if(position - shift < (shift == 0 ? 0 : windowSize) || position > position()){
+            throw new IllegalArgumentException("Check position argument!");
+        }
+        long keptStart = position - shift - (position - shift) % windowSize;
+        // the first window of the new file holds the start record, so dropping one window alone gains nothing
+        if(keptStart <= windowSize){
+            return false;
+        }
+        sync();
+        long newShift = shift + keptStart - windowSize;
+        Path rolledFile = file.resolveSibling(file.getFileName() + ".roll");
+        FileChannel rolled = FileChannel.open(rolledFile, CREATE, TRUNCATE_EXISTING, READ, WRITE);
+        try {
+            rolled.write(startRecord(newShift + windowSize), 0);
+            rolled.position(windowSize);
+            for(long offset = keptStart, size = channel.size(); offset < size; ) {
+                offset += channel.transferTo(offset, size - offset, rolled);
+            }
+            rolled.force(true);
+            Files.move(rolledFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+            syncDirectory(file);
+        }
+        catch(IOException | RuntimeException e){
+            rolled.close();
+            throw e;
+        }
+        int offset = window.position();
+        channel.close();
+        channel = rolled;
+        shift = newShift;
+        windowStart = windowStart - keptStart + windowSize;
+        window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        window.position(offset);
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    // a file moved into place is only there after a crash once the directory holding it has been synced too
+    static void syncDirectory(Path file) throws IOException {
+        try(FileChannel directory = FileChannel.open(file.toAbsolutePath().getParent(), READ)) {
+            directory.force(true);
+        }
+    }
+
+    private int begin(byte type, int fieldsSize) {
+        int recordSize = HEADER_SIZE + 1 + 8 + fieldsSize;
+        if(window.remaining() < recordSize){
+            nextWindow();
+        }
+        int start = window.position();
+        timestamp = clock.getAsLong();
+        window.position(start + HEADER_SIZE);
+        window.put(type);
+        window.putLong(timestamp);
+        return start;
+    }
+
+    private void end(int start) {
+        int end = window.position();
+        window.limit(end).position(start + HEADER_SIZE);
+        crc.reset();
+        crc.update(window);
+        window.limit(window.capacity()).position(end);
+        window.putInt(start + 4, (int) crc.getValue());
+        window.putInt(start, end - start - HEADER_SIZE);
+        if(unsynced++ == 0){
+            oldestUnsynced = timestamp;
+        }
+        if(syncEvery > 0 && unsynced >= syncEvery || maxSyncNanos > 0 && timestamp - oldestUnsynced >= maxSyncNanos){
+            sync();
+        }
+    }
+
+    // the logical position the second window of a rolled file starts at, followed by a skip to that window
+    private ByteBuffer startRecord(long position) {
+        ByteBuffer record = ByteBuffer.allocate(START_RECORD_SIZE + 4);
+        record.position(HEADER_SIZE);
+        record.put(START);
+        record.putLong(clock.getAsLong());
+        record.putLong(position);
+        record.flip().position(HEADER_SIZE);
+        crc.reset();
+        crc.update(record);
+        record.limit(record.capacity());
+        record.putInt(0, START_RECORD_SIZE - HEADER_SIZE);
+        record.putInt(4, (int) crc.getValue());
+        record.putInt(START_RECORD_SIZE, SKIP_TO_NEXT_WINDOW);
+        return record.position(0);
+    }
+
+    private void nextWindow() {
+        if(window.remaining() >= 4){
+            window.putInt(window.position(), SKIP_TO_NEXT_WINDOW);
+        }
+        window.force();
+        windowStart += windowSize;
+        try {
+            window = channel.map(FileChannel.MapMode.READ_WRITE, windowStart, windowSize);
+        }
+        catch(IOException e){
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void putOrder(Order order, byte[] trader) {
+        window.put((byte) order.getSide().ordinal());
+        window.putLong(order.getPrice());
+        window.putLong(order.getQuantityUnits());
+        putTrader(trader);
+    }
+
+    private void putTrader(byte[] trader) {
+        window.putShort((short) trader.length);
+        window.put(trader);
+    }
+
+    private static byte[] trader(String trader) {
+        byte[] bytes = trader.getBytes(UTF_8);
+        if(bytes.length > 0xFFFF){
+            throw new IllegalArgumentException("Check trader argument!");
+        }
+        return bytes;
+    }
+
+    private static void read(MappedByteBuffer window, JournalListener listener) {
+        byte type = window.get();
+        long timestamp = window.getLong();
+        switch(type) {
+            case ADD:
+                long orderId = window.getLong();
+                listener.onAdd(timestamp, orderId, readOrder(window));
+                break;
+            case CANCEL:
+                listener.onCancel(timestamp, window.getLong());
+                break;
+            case CANCEL_ORDER:
+                listener.onCancelOrder(timestamp, readOrder(window));
+                break;
+            case CANCEL_TRADER:
+                listener.onCancelTrader(timestamp, readTrader(window));
+                break;
+            case AMEND:
+                listener.onAmend(timestamp, window.getLong(), window.getLong(), window.getLong());
+                break;
+            case START:
+                window.getLong();
+                break;
+            default:
+                throw new IllegalStateException("Unknown journal record type " + type);
+        }
+    }
+
+    private static Order readOrder(MappedByteBuffer window) {
+        OrderSide side = OrderSide.values()[window.get()];
+        long price = window.getLong();
+        long quantity = window.getLong();
+        return Order.ofUnits(side, price, quantity, readTrader(window));
+    }
+
+    private static String readTrader(MappedByteBuffer window) {
+        byte[] trader = new byte[window.getShort() & 0xFFFF];
+        window.get(trader);
+        return new String(trader, UTF_8);
+    }
+}
@@ -0,0 +1,151 @@
+package horizons.cstest.replay;
+
+import horizons.cstest.manager.LongLongMap;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.metrics.LatencyHistogram;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import horizons.cstest.persistence.JournalListener;
+import horizons.cstest.persistence.OrderJournal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.locks.LockSupport;
+
+import static horizons.cstest.model.Quantity.toKg;
+
+/*
+ Feeds the events of an OrderJournal file, such as one captured in production or written by SyntheticOrderGenerator,
+ into a book and reports throughput and the latency of each call. The file is read through memory-mapped windows
+ one record at a time, so files far larger than the heap can be replayed.
+
+ At speed 0 events are applied as fast as possible. Otherwise they are paced by their timestamps: at speed 1 as they
+ were captured, at speed 2 twice as fast. When paced, latency is taken from the time an event was due rather than
+ from when it was applied, so a book falling behind shows up in the latencies instead of slowing the replay down.
+
+ The book hands out its own ids, so the ids in the file are mapped to them in a primitive map sized from the file,
+ 16 bytes per resting order and no garbage; an entry is dropped when its order is cancelled. Not thread safe, one replay at a time.
+ * */
+public class OrderReplay implements JournalListener {
+    private static final long NONE = 0;
+    private static final int MIN_ADD_RECORD_SIZE = 45; // header, type, timestamp, id, side, price, quantity, 1 char trader
+    private static final int MAX_EXPECTED_ORDERS = 1 << 20; // 32 MB of map up front, it grows from there if needed
+
+    private final OrderBook orderBook;
+    private final double speed;
+    private LongLongMap orderIds;
+    private final LatencyHistogram addLatency = new LatencyHistogram();
+    private final LatencyHistogram cancelLatency = new LatencyHistogram();
+    private final LatencyHistogram amendLatency = new LatencyHistogram();
+    private long adds;
+    private long cancels;
+    private long amends;
+    private long unknownCancels;
+    private long unknownAmends;
+    private long firstTimestamp = -1;
+    private long startNanos;
+
+    public OrderReplay(OrderBook orderBook, double speed) {
+        if(orderBook == null || speed < 0){
+            throw new IllegalArgumentException("Check replay arguments!");
+        }
+        this.orderBook = orderBook;
+        this.speed = speed;
+    }
+
+    public ReplayReport replay(Path file) throws IOException {
+        if(file == null){
+            throw new IllegalArgumentException("Check file argument!");
+        }
+        // at most one entry per add record, and usually far fewer as orders get cancelled
+        orderIds = new LongLongMap((int) Math.min(Files.size(file) / MIN_ADD_RECORD_SIZE, MAX_EXPECTED_ORDERS));
+        startNanos = System.nanoTime();
+        OrderJournal.replay(file, 0, this);
+        return new ReplayReport(adds, cancels, amends, unknownCancels, unknownAmends, System.nanoTime() - startNanos,
+                                addLatency.summary(), cancelLatency.summary(), amendLatency.summary());
+    }
+
+    @Override
+    public void onAdd(long timestamp, long orderId, Order order) {
+        long start = due(timestamp);
+        orderIds.put(orderId, orderBook.addOrder(order));
+        addLatency.record(System.nanoTime() - start);
+        adds++;
+    }
+
+    @Override
+    public void onCancel(long timestamp, long orderId) {
+        long bookOrderId = orderIds.remove(orderId, NONE);
+        if(bookOrderId == NONE){
+            unknownCancels++;
+            return;
+        }
+        long start = due(timestamp);
+        orderBook.cancelOrder(bookOrderId);
+        cancelLatency.record(System.nanoTime() - start);
+        cancels++;
+    }
+
+    @Override
+    public void onCancelOrder(long timestamp, Order order) {
+        long start = due(timestamp);
+        orderBook.cancelOrder(order);
+        cancelLatency.record(System.nanoTime() - start);
+        cancels++;
+    }
+
+    @Override
+    public void onCancelTrader(long timestamp, String trader) {
+        long start = due(timestamp);
+        orderBook.cancelAllForTrader(trader);
+        cancelLatency.record(System.nanoTime() - start);
+        cancels++;
+    }
+
+    @Override
+    public void onAmend(long timestamp, long orderId, long price, long quantity) {
+        long bookOrderId = orderIds.get(orderId, NONE);
+        if(bookOrderId == NONE){
+            unknownAmends++;
+            return;
+        }
+        long start = due(timestamp);
+        orderBook.amendOrder(bookOrderId, price, toKg(quantity));
+        amendLatency.record(System.nanoTime() - start);
+        amends++;
+    }
+
+    // waits until the event is due and returns when it was due, or returns now when not pacing
+    private long due(long timestamp) {
+        if(speed == 0){
+            return System.nanoTime();
+        }
+        if(firstTimestamp < 0){
+            firstTimestamp = timestamp;
+        }
+        long due = startNanos + (long) ((timestamp - firstTimestamp) / speed);
+        for(long wait = due - System.nanoTime(); wait > 0; wait = due - System.nanoTime()){
+            // parking overshoots by tens of microseconds, so the last bit is spun
+            if(wait > 100_000){
+                LockSupport.parkNanos(wait - 50_000);
+            }
+        }
+        return due;
+    }
+
+    // file [speed]
+    public static void main(String[] args) throws IOException {
+        if(args.length < 1){
+            System.out.println("Usage: OrderReplay <file> [speed, 0 for as fast as possible]");
+            return;
+        }
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+        OrderBook orderBook = new SimpleOrderBook();
+        System.out.println(new OrderReplay(orderBook, speed).replay(Paths.get(args[0])));
+        System.out.println(orderBook.getOrderCount() + " orders resting on " + orderBook.getLevelCount(OrderSide.BUY)
+                           + " buy and " + orderBook.getLevelCount(OrderSide.SELL) + " sell levels");
+    }
+}
@@ -0,0 +1,82 @@
+package horizons.cstest.replay;
+
+import horizons.cstest.metrics.LatencySummary;
+
+// What OrderReplay saw: how many events it applied, how long that took and how long each call took, in nanoseconds.
+public class ReplayReport {
+    private final long adds;
+    private final long cancels;
+    private final long amends;
+    private final long unknownCancels;
+    private final long unknownAmends;
+    private final long elapsedNanos;
+    private final LatencySummary addLatency;
+    private final LatencySummary cancelLatency;
+    private final LatencySummary amendLatency;
+
+    ReplayReport(long adds, long cancels, long amends, long unknownCancels, long unknownAmends, long elapsedNanos,
+                 LatencySummary addLatency, LatencySummary cancelLatency, LatencySummary amendLatency) {
+        this.adds = adds;
+        this.cancels = cancels;
+        this.amends = amends;
+        this.unknownCancels = unknownCancels;
+        this.unknownAmends = unknownAmends;
+        this.elapsedNanos = elapsedNanos;
+        this.addLatency = addLatency;
+        this.cancelLatency = cancelLatency;
+        this.amendLatency = amendLatency;
+    }
+
+    public long getAdds() {
+        return adds;
+    }
+
+    // cancels by id, by order and by trader applied to the book
+    public long getCancels() {
+        return cancels;
+    }
+
+    public long getAmends() {
+        return amends;
+    }
+
+    // cancels by id of orders the file never added, such as those added before the capture started, which are skipped
+    public long getUnknownCancels() {
+        return unknownCancels;
+    }
+
+    // same as above for amends
+    public long getUnknownAmends() {
+        return unknownAmends;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getEventsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (adds + cancels + amends) * 1e9 / elapsedNanos;
+    }
+
+    public LatencySummary getAddLatency() {
+        return addLatency;
+    }
+
+    public LatencySummary getCancelLatency() {
+        return cancelLatency;
+    }
+
+    public LatencySummary getAmendLatency() {
+        return amendLatency;
+    }
+
+    @Override
+    public String toString() {
+        return adds + " adds, " + cancels + " cancels and " + amends + " amends (" + unknownCancels + " cancels and "
+                + unknownAmends + " amends of unknown orders skipped) in " + elapsedNanos / 1_000_000 + " ms, "
+                + Math.round(getEventsPerSecond()) + " events/s"
+                + System.lineSeparator() + "add:    " + addLatency
+                + System.lineSeparator() + "cancel: " + cancelLatency
+                + System.lineSeparator() + "amend:  " + amendLatency;
+    }
+}
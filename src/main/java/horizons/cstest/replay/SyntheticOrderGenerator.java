@@ -0,0 +1,109 @@
+package horizons.cstest.replay;
+
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import horizons.cstest.persistence.OrderJournal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ Writes made-up order events into an OrderJournal file, in the format OrderReplay reads, with:
+ - arrivals as a Poisson process of the given rate, so the gaps between events are exponential;
+ - a mid price walking one tick up or down now and then, orders resting a geometrically distributed number of ticks
+   away from it, so most of them are close to the touch and a few far out;
+ - log-normal quantities around a median, rounded to 100 g;
+ - traders picked by Zipf's law, a handful of them sending most of the orders;
+ - cancels of orders picked at random from those still resting.
+ The same seed gives the same file.
+ * */
+public class SyntheticOrderGenerator {
+    private static final double MID_MOVE_PROBABILITY = 0.01;
+    private static final double MEAN_TICKS_FROM_MID = 5;
+    private static final long MEDIAN_QUANTITY = 2_000; // in grams
+    private static final double QUANTITY_SIGMA = 0.8;
+    private static final long QUANTITY_STEP = 100;
+
+    private final Random random;
+    private final String[] traders;
+    private final double[] traderWeights; // cumulative
+    private final double cancelRatio;
+
+    // cancelRatio is the share of events that are cancels, as long as there are orders to cancel
+    public SyntheticOrderGenerator(long seed, int traders, double cancelRatio) {
+        if(traders <= 0 || cancelRatio < 0 || cancelRatio >= 1){
+            throw new IllegalArgumentException("Check generator arguments!");
+        }
+        this.random = new Random(seed);
+        this.traders = new String[traders];
+        this.traderWeights = new double[traders];
+        double total = 0;
+        for(int i = 0; i < traders; i++){
+            this.traders[i] = "trader" + i;
+            total += 1.0 / (i + 1);
+            this.traderWeights[i] = total;
+        }
+        this.cancelRatio = cancelRatio;
+    }
+
+    // writes the events to a new journal file starting at startNanos, epoch nanoseconds, returns the last timestamp
+    public long generate(Path file, int events, double eventsPerSecond, long midPrice, long startNanos) throws IOException {
+        if(events < 0 || eventsPerSecond <= 0 || midPrice <= 0){
+            throw new IllegalArgumentException("Check generator arguments!");
+        }
+        long[] now = {startNanos};
+        long[] resting = new long[Math.min(events, 1 << 20)];
+        int restingCount = 0;
+        long nextOrderId = 1;
+        long mid = midPrice;
+        try(OrderJournal journal = OrderJournal.open(file, 0, () -> now[0])) {
+            for(int i = 0; i < events; i++){
+                now[0] += (long) (-Math.log(1 - random.nextDouble()) / eventsPerSecond * 1e9);
+                if(restingCount > 0 && (random.nextDouble() < cancelRatio || restingCount == resting.length)){
+                    int pick = random.nextInt(restingCount);
+                    journal.cancel(resting[pick]);
+                    resting[pick] = resting[--restingCount];
+                    continue;
+                }
+                if(random.nextDouble() < MID_MOVE_PROBABILITY){
+                    mid = Math.max(2, mid + (random.nextBoolean() ? 1 : -1));
+                }
+                journal.add(nextOrderId, nextOrder(mid));
+                resting[restingCount++] = nextOrderId++;
+            }
+        }
+        return now[0];
+    }
+
+    private Order nextOrder(long mid) {
+        OrderSide side = random.nextBoolean() ? OrderSide.BUY : OrderSide.SELL;
+        long ticks = (long) (-Math.log(1 - random.nextDouble()) * MEAN_TICKS_FROM_MID);
+        long price = OrderSide.BUY == side ? Math.max(1, mid - 1 - ticks) : mid + 1 + ticks;
+        double grams = MEDIAN_QUANTITY * Math.exp(random.nextGaussian() * QUANTITY_SIGMA);
+        long quantity = Math.max(1, Math.round(grams / QUANTITY_STEP)) * QUANTITY_STEP;
+        return Order.ofUnits(side, price, quantity, nextTrader());
+    }
+
+    private String nextTrader() {
+        double weight = random.nextDouble() * traderWeights[traderWeights.length - 1];
+        int index = Arrays.binarySearch(traderWeights, weight);
+        return traders[Math.min(index >= 0 ? index : -index - 1, traders.length - 1)];
+    }
+
+    // file events [events per second] [seed]
+    public static void main(String[] args) throws IOException {
+        if(args.length < 2){
+            System.out.println("Usage: SyntheticOrderGenerator <file> <events> [events per second] [seed]");
+            return;
+        }
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 100_000;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 7;
+        SyntheticOrderGenerator generator = new SyntheticOrderGenerator(seed, 100, 0.4);
+        long end = generator.generate(Paths.get(args[0]), Integer.parseInt(args[1]), rate, 300,
+                                      System.currentTimeMillis() * 1_000_000);
+        System.out.println("Wrote " + args[1] + " events to " + args[0] + " up to " + end);
+    }
+}
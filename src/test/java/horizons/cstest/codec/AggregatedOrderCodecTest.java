@@ -0,0 +1,76 @@
+package horizons.cstest.codec;
+
+import com.sun.management.ThreadMXBean;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class AggregatedOrderCodecTest {
+
+    @Test
+    public void shouldRoundTripBoardTest(){
+        List<AggregatedOrder> board = board();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(AggregatedOrderCodec.boardSize(board.size()));
+        AggregatedOrderCodec.encodeBoard(board, buffer);
+        assertThat(buffer.remaining(), is(0));
+
+        buffer.flip();
+        assertThat(AggregatedOrderCodec.decodeBoard(buffer), is(board));
+    }
+
+    @Test
+    public void shouldReadLevelsOfBoardInPlaceTest(){
+        List<AggregatedOrder> board = board();
+        ByteBuffer buffer = ByteBuffer.allocate(AggregatedOrderCodec.boardSize(board.size()));
+        AggregatedOrderCodec.encodeBoard(board, buffer);
+
+        AggregatedOrderFlyweight flyweight = new AggregatedOrderFlyweight().wrapLevel(buffer, 0, 2);
+        assertThat(flyweight.getSide(), is(SELL));
+        assertThat(flyweight.getPrice(), is(306L));
+        assertThat(flyweight.getQuantity(), is(5.5));
+        assertThat(flyweight.wrapLevel(buffer, 0, 0).toAggregatedOrder(), is(new AggregatedOrder(BUY, 301, 2.0)));
+    }
+
+    @Test
+    public void shouldNotAllocateWhenEncodingBoardTest(){
+        List<AggregatedOrder> board = board();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(AggregatedOrderCodec.boardSize(board.size()));
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        encodeBoard(board, buffer); // warm up
+        threads.getThreadAllocatedBytes(threadId);
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        encodeBoard(board, buffer);
+        long allocatedAfter = threads.getThreadAllocatedBytes(threadId);
+
+        assertThat(allocatedAfter - allocatedBefore, is(0L));
+    }
+
+    private static void encodeBoard(List<AggregatedOrder> board, ByteBuffer buffer){
+        for(int i = 0; i < 100_000; i++){
+            buffer.clear();
+            AggregatedOrderCodec.encodeBoard(board, buffer);
+        }
+    }
+
+    private static List<AggregatedOrder> board(){
+        SimpleOrderBook orderBook = new SimpleOrderBook();
+        orderBook.addOrder(new Order(BUY, 301, 2.0, "user1"));
+        orderBook.addOrder(new Order(BUY, 299, 1.0, "user2"));
+        orderBook.addOrder(new Order(SELL, 306, 3.5, "user3"));
+        orderBook.addOrder(new Order(SELL, 306, 2.0, "user4"));
+        orderBook.addOrder(new Order(SELL, 310, 1.2, "user5"));
+        return orderBook.getAllAggregatedOrders();
+    }
+}
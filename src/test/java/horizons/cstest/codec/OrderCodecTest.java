@@ -0,0 +1,58 @@
+package horizons.cstest.codec;
+
+import horizons.cstest.model.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class OrderCodecTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void shouldRoundTripOrdersTest(){
+        ByteBuffer buffer = ByteBuffer.allocateDirect(3 * OrderCodec.SIZE);
+        Order first = new Order(SELL, 306, 3.5, "user1");
+        Order second = new Order(BUY, 1_000_000_000_000L, 0.001, "trader-\u00e9");
+        OrderCodec.encode(first, buffer);
+        OrderCodec.encode(second, buffer);
+        assertThat(buffer.position(), is(2 * OrderCodec.SIZE));
+
+        buffer.flip();
+        assertThat(OrderCodec.decode(buffer), is(first));
+        assertThat(OrderCodec.decode(buffer), is(second));
+        assertThat(buffer.remaining(), is(0));
+    }
+
+    @Test
+    public void shouldReadFieldsInPlaceTest(){
+        ByteBuffer buffer = ByteBuffer.allocate(2 * OrderCodec.SIZE);
+        OrderCodec.encode(new Order(SELL, 306, 3.5, "user1"), buffer, 0);
+        OrderCodec.encode(new Order(BUY, 300, 1.2, "user2"), buffer, OrderCodec.SIZE);
+
+        OrderFlyweight flyweight = new OrderFlyweight().wrap(buffer, OrderCodec.SIZE);
+        assertThat(flyweight.getSide(), is(BUY));
+        assertThat(flyweight.getPrice(), is(300L));
+        assertThat(flyweight.getQuantityUnits(), is(1200L));
+        assertThat(flyweight.getTrader(), is("user2"));
+
+        flyweight.wrap(buffer, 0);
+        assertThat(flyweight.getQuantity(), is(3.5));
+        assertThat(flyweight.toOrder(), is(new Order(SELL, 306, 3.5, "user1")));
+    }
+
+    @Test
+    public void shouldRejectTraderLongerThanItsFieldTest(){
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Check trader argument!");
+        OrderCodec.encode(new Order(SELL, 306, 3.5, "a-trader-name-of-more-than-thirty-bytes"), ByteBuffer.allocate(OrderCodec.SIZE));
+    }
+}
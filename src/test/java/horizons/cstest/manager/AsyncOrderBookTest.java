@@ -0,0 +1,158 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.hamcrest.core.IsSame.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class AsyncOrderBookTest {
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final CountingOrderBook orderBook = new CountingOrderBook();
+    private final AsyncOrderBook asyncOrderBook = new AsyncOrderBook(orderBook, tasks::add);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void shouldApplyWritesInCallOrderTest(){
+        CompletableFuture<Long> first = asyncOrderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        CompletableFuture<Long> second = asyncOrderBook.addOrder(new Order(BUY, 300, 2.0, "user2"));
+        CompletableFuture<Boolean> cancelled = asyncOrderBook.cancelOrder(new Order(SELL, 306, 3.5, "user1"));
+        CompletableFuture<Boolean> amended = asyncOrderBook.amendOrder(2, 301, 1.5);
+        CompletableFuture<Boolean> missing = asyncOrderBook.cancelOrder(1);
+
+        assertThat(first.join(), is(1L));
+        assertThat(second.join(), is(2L));
+        assertThat(cancelled.join(), is(true));
+        assertThat(amended.join(), is(true));
+        assertThat(missing.join(), is(false));
+        assertThat(tasks.isEmpty(), is(true));
+        assertThat(orderBook.getAllAggregatedOrders(), is(Arrays.asList(new AggregatedOrder(BUY, 301, 1.5))));
+    }
+
+    @Test
+    public void shouldCoalesceConcurrentReadsTest(){
+        asyncOrderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        asyncOrderBook.addOrder(new Order(BUY, 300, 2.0, "user2"));
+
+        CompletableFuture<List<AggregatedOrder>> buy = asyncOrderBook.getAggregatedBuyOrders();
+        CompletableFuture<List<AggregatedOrder>> otherBuy = asyncOrderBook.getAggregatedBuyOrders();
+        CompletableFuture<List<AggregatedOrder>> sell = asyncOrderBook.getAggregatedSellOrders();
+        CompletableFuture<List<AggregatedOrder>> all = asyncOrderBook.getAllAggregatedOrders();
+        CompletableFuture<List<AggregatedOrder>> otherAll = asyncOrderBook.getAllAggregatedOrders();
+        CompletableFuture<BoardSnapshot> board = asyncOrderBook.getBoardSnapshot();
+        assertThat(tasks.size(), is(1));
+
+        tasks.poll().run();
+        assertThat(orderBook.boardReads, is(1));
+        assertThat(buy.join(), sameInstance(otherBuy.join()));
+        assertThat(buy.join(), sameInstance(board.join().getBuyLevels()));
+        assertThat(sell.join(), is(Arrays.asList(new AggregatedOrder(SELL, 306, 3.5))));
+        assertThat(all.join(), sameInstance(otherAll.join()));
+        assertThat(all.join(), is(Arrays.asList(new AggregatedOrder(BUY, 300, 2.0), new AggregatedOrder(SELL, 306, 3.5))));
+    }
+
+    @Test
+    public void shouldNotJoinReadThatAlreadyStartedTest(){
+        asyncOrderBook.addOrder(new Order(BUY, 300, 2.0, "user2"));
+        CompletableFuture<BoardSnapshot> before = asyncOrderBook.getBoardSnapshot();
+        tasks.poll().run();
+
+        asyncOrderBook.addOrder(new Order(BUY, 301, 1.0, "user2"));
+        CompletableFuture<BoardSnapshot> after = asyncOrderBook.getBoardSnapshot();
+        assertThat(after.isDone(), is(false));
+        tasks.poll().run();
+
+        assertThat(orderBook.boardReads, is(2));
+        assertThat(before.join().getBuyLevels().size(), is(1));
+        assertThat(after.join().getBuyLevels().size(), is(2));
+    }
+
+    @Test
+    public void shouldNotLetCallerCompleteSharedReadTest(){
+        CompletableFuture<BoardSnapshot> cancelled = asyncOrderBook.getBoardSnapshot();
+        CompletableFuture<BoardSnapshot> other = asyncOrderBook.getBoardSnapshot();
+        cancelled.cancel(false);
+        tasks.poll().run();
+
+        assertThat(other.join().getVersion(), is(orderBook.getBoardSnapshot().getVersion()));
+    }
+
+    @Test
+    public void shouldFailFutureOfRejectedWriteTest(){
+        try {
+            asyncOrderBook.addOrder(null).join();
+            fail();
+        }
+        catch(CompletionException e){
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+    }
+
+    @Test
+    public void shouldRunSubmittedCallOnExecutorTest(){
+        asyncOrderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        CompletableFuture<Integer> count = asyncOrderBook.submit(OrderBook::getOrderCount);
+        assertThat(count.isDone(), is(false));
+
+        tasks.poll().run();
+        assertThat(count.join(), is(1));
+    }
+
+    @Test
+    public void shouldShareReadsAcrossThreadsTest() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        AsyncOrderBook shared = new AsyncOrderBook(new SimpleOrderBook(), executor);
+        shared.addOrder(new Order(BUY, 300, 2.0, "user2"));
+        CompletableFuture<?>[] reads = new CompletableFuture<?>[1000];
+        for(int i = 0; i < reads.length; i++){
+            reads[i] = i % 2 == 0 ? shared.getAggregatedBuyOrders() : shared.addOrder(new Order(SELL, 306, 1.0, "user1"));
+        }
+        CompletableFuture.allOf(reads).join();
+        List<AggregatedOrder> sell = shared.getAggregatedSellOrders().join();
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        assertThat(sell, is(Arrays.asList(new AggregatedOrder(SELL, 306, 500.0))));
+    }
+
+    @Test
+    public void shouldThrowIllegalArgumentExceptionOnMissingExecutorTest(){
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Check async book arguments!");
+        new AsyncOrderBook(new SimpleOrderBook(), null);
+    }
+
+    private static class CountingOrderBook extends ForwardingOrderBook {
+        private int boardReads;
+
+        CountingOrderBook() {
+            super(new SimpleOrderBook());
+        }
+
+        @Override
+        public BoardSnapshot getBoardSnapshot() {
+            boardReads++;
+            return super.getBoardSnapshot();
+        }
+    }
+}
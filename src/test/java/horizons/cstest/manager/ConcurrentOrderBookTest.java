@@ -0,0 +1,212 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class ConcurrentOrderBookTest extends OrderBookTest {
+
+    private static final int THREADS = 8;
+    private static final int ORDERS_PER_THREAD = 2_000;
+
+    @Override
+    protected OrderBook newOrderBook(){
+        return new ConcurrentOrderBook();
+    }
+
+    @Test
+    public void shouldAggregateOrdersAddedAndCancelledFromManyThreadsTest() throws Exception {
+        OrderBook orderBook = newOrderBook();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+            for(int t = 0; t < THREADS; t++){
+                String trader = "user" + t;
+                writers.add(executor.submit(() -> {
+                    List<Long> orderIds = new ArrayList<>();
+                    for(int i = 0; i < ORDERS_PER_THREAD; i++){
+                        orderIds.add(orderBook.addOrder(new Order(i % 2 == 0 ? BUY : SELL, 300 + i % 10, 1.0, trader)));
+                    }
+                    // cancel every other one, alternating between cancel by id and by order
+                    for(int i = 0; i < ORDERS_PER_THREAD; i += 2){
+                        if(i % 4 == 0){
+                            orderBook.cancelOrder(orderIds.get(i));
+                        }
+                        else{
+                            orderBook.cancelOrder(new Order(BUY, 300 + i % 10, 1.0, trader));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for(Future<?> writer : writers){
+                writer.get(30, TimeUnit.SECONDS);
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        // only the sell orders are left, spread evenly over 5 levels
+        assertThat(orderBook.getOrders().size(), is(THREADS * ORDERS_PER_THREAD / 2));
+        assertThat(orderBook.getAggregatedBuyOrders().size(), is(0));
+        List<AggregatedOrder> sellLevels = orderBook.getAggregatedSellOrders();
+        assertThat(sellLevels.size(), is(5));
+        for(AggregatedOrder level : sellLevels){
+            assertThat(level.getQuantity(), is(THREADS * ORDERS_PER_THREAD / 10.0));
+        }
+    }
+
+    @Test
+    public void readersShouldAlwaysSeeSortedBoardsWhileWritersRunTest() throws Exception {
+        OrderBook orderBook = newOrderBook();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            Future<?> buyWriter = executor.submit(() -> write(orderBook, BUY, writing));
+            Future<?> sellWriter = executor.submit(() -> write(orderBook, SELL, writing));
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for(int r = 0; r < 2; r++){
+                readers.add(executor.submit(() -> {
+                    boolean sorted = true;
+                    while(writing.get()){
+                        List<AggregatedOrder> levels = orderBook.getAllAggregatedOrders();
+                        for(int i = 1; i < levels.size(); i++){
+                            AggregatedOrder previous = levels.get(i - 1);
+                            AggregatedOrder current = levels.get(i);
+                            if(previous.getSide() == current.getSide()){
+                                boolean inOrder = BUY == current.getSide() ? previous.getPrice() > current.getPrice()
+                                                                          : previous.getPrice() < current.getPrice();
+                                sorted &= inOrder;
+                            }
+                        }
+                    }
+                    return sorted;
+                }));
+            }
+            Thread.sleep(200);
+            writing.set(false);
+            buyWriter.get(30, TimeUnit.SECONDS);
+            sellWriter.get(30, TimeUnit.SECONDS);
+            for(Future<Boolean> reader : readers){
+                assertThat(reader.get(30, TimeUnit.SECONDS), is(true));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void readersShouldSeeBatchesOnBothSidesWhollyOrNotAtAllTest() throws Exception {
+        OrderBook orderBook = newOrderBook();
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            Future<?> writer = executor.submit(() -> {
+                while(writing.get()){
+                    OrderBatch add = new OrderBatch();
+                    add.add(new Order(BUY, 300, 1.0, "user1"));
+                    add.add(new Order(SELL, 310, 1.0, "user2"));
+                    List<Long> orderIds = orderBook.applyBatch(add);
+                    OrderBatch cancel = new OrderBatch();
+                    orderIds.forEach(cancel::cancel);
+                    orderBook.applyBatch(cancel);
+                }
+                return null;
+            });
+            List<Future<Boolean>> readers = new ArrayList<>();
+            for(int r = 0; r < 2; r++){
+                readers.add(executor.submit(() -> {
+                    boolean whole = true;
+                    while(writing.get()){
+                        BoardSnapshot board = orderBook.getBoardSnapshot();
+                        whole &= board.getBuyLevels().size() == board.getSellLevels().size();
+                        whole &= orderBook.getTopLevels(BUY, 5).size() <= 1;
+                    }
+                    return whole;
+                }));
+            }
+            Thread.sleep(200);
+            writing.set(false);
+            writer.get(30, TimeUnit.SECONDS);
+            for(Future<Boolean> reader : readers){
+                assertThat(reader.get(30, TimeUnit.SECONDS), is(true));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+        assertThat(orderBook.getBestBid() == null, is(true));
+        assertThat(orderBook.getLevelCount(SELL), is(0));
+    }
+
+    @Test
+    public void shouldCancelOrderBeingAmendedTest() throws Exception {
+        OrderBook orderBook = newOrderBook();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for(int round = 0; round < 200; round++){
+                long orderId = orderBook.addOrder(new Order(BUY, 300, 1.0, "user1"));
+                CountDownLatch amending = new CountDownLatch(1);
+                Future<?> amender = executor.submit(() -> {
+                    double quantity = 2.0;
+                    while(orderBook.amendOrder(orderId, 300, quantity)){
+                        amending.countDown();
+                        quantity = 3.0 - quantity;
+                    }
+                    return null;
+                });
+                amending.await();
+                assertThat(orderBook.cancelOrder(orderId), is(true));
+                amender.get(30, TimeUnit.SECONDS);
+                assertThat(orderBook.getOrders().isEmpty(), is(true));
+                assertThat(orderBook.getAggregatedBuyOrders().isEmpty(), is(true));
+            }
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldCancelEqualOrdersOldestFirstWhateverWasCancelledByIdTest(){
+        OrderBook orderBook = newOrderBook();
+        Order order = new Order(BUY, 300, 1.0, "user1");
+        List<Long> orderIds = new ArrayList<>();
+        for(int i = 0; i < 100_000; i++){
+            orderIds.add(orderBook.addOrder(order));
+        }
+        // newest first, the far end of the index
+        for(int i = orderIds.size() - 1; i > 1; i--){
+            assertThat(orderBook.cancelOrder(orderIds.get(i)), is(true));
+        }
+
+        assertThat(orderBook.cancelOrder(order), is(true));
+        assertThat(orderBook.getOrder(orderIds.get(0)) == null, is(true));
+        assertThat(orderBook.getOrder(orderIds.get(1)), is(order));
+    }
+
+    private static Void write(OrderBook orderBook, OrderSide side, AtomicBoolean writing){
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Long> orderIds = new ArrayList<>();
+        while(writing.get()){
+            orderIds.add(orderBook.addOrder(new Order(side, 300 + random.nextInt(50), 1.0, "user1")));
+            if(orderIds.size() > 100){
+                orderBook.cancelOrder(orderIds.remove(random.nextInt(orderIds.size())));
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,123 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Fill;
+import horizons.cstest.model.Order;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MatchingOrderBookTest {
+    private final List<Fill> fills = new ArrayList<>();
+    private final OrderBook orderBook = new SimpleOrderBook(fills::add);
+
+    @Test
+    public void shouldRestOrdersThatDoNotCrossTest(){
+        orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        orderBook.addOrder(new Order(BUY, 305, 2.0, "user2"));
+
+        assertThat(fills.isEmpty(), is(true));
+        assertThat(orderBook.getSpread(), is(1L));
+    }
+
+    @Test
+    public void shouldFillIncomingOrderInFullAtRestingPriceTest(){
+        long restingId = orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        long incomingId = orderBook.addOrder(new Order(BUY, 307, 2.0, "user2"));
+
+        assertThat(fills, is(Collections.singletonList(new Fill(restingId, incomingId, BUY, 306, 2000, "user1", "user2"))));
+        assertThat(orderBook.getOrder(incomingId), is(nullValue()));
+        // the resting order keeps its id with what is left
+        assertThat(orderBook.getOrder(restingId), is(new Order(SELL, 306, 1.5, "user1")));
+        assertThat(orderBook.getAggregatedSellOrders(), is(Collections.singletonList(new AggregatedOrder(SELL, 306, 1.5))));
+        assertThat(orderBook.getAggregatedBuyOrders().isEmpty(), is(true));
+        assertThat(orderBook.cancelOrder(new Order(SELL, 306, 1.5, "user1")), is(true));
+    }
+
+    @Test
+    public void shouldSweepLevelsInPriceTimePriorityAndRestRemainderTest(){
+        long first = orderBook.addOrder(new Order(BUY, 305, 1.0, "user1"));
+        long second = orderBook.addOrder(new Order(BUY, 305, 1.0, "user2"));
+        long better = orderBook.addOrder(new Order(BUY, 306, 0.5, "user3"));
+        long cancelled = orderBook.addOrder(new Order(BUY, 304, 1.0, "user4"));
+        long worse = orderBook.addOrder(new Order(BUY, 304, 1.0, "user5"));
+        orderBook.cancelOrder(cancelled);
+
+        long incoming = orderBook.addOrder(new Order(SELL, 304, 4.0, "user6"));
+
+        assertThat(fills, is(Arrays.asList(
+                new Fill(better, incoming, SELL, 306, 500, "user3", "user6"),
+                new Fill(first, incoming, SELL, 305, 1000, "user1", "user6"),
+                new Fill(second, incoming, SELL, 305, 1000, "user2", "user6"),
+                new Fill(worse, incoming, SELL, 304, 1000, "user5", "user6"))));
+        assertThat(orderBook.getAggregatedBuyOrders().isEmpty(), is(true));
+        assertThat(orderBook.getOrder(incoming), is(new Order(SELL, 304, 0.5, "user6")));
+        assertThat(orderBook.getBestOffer(), is(new AggregatedOrder(SELL, 304, 0.5)));
+    }
+
+    @Test
+    public void shouldMatchOrdersOfBatchOneAfterAnotherTest(){
+        OrderBatch batch = new OrderBatch();
+        batch.add(new Order(SELL, 306, 1.0, "user1"));
+        batch.add(new Order(BUY, 306, 1.0, "user2"));
+        List<Long> orderIds = orderBook.applyBatch(batch);
+
+        assertThat(fills, is(Collections.singletonList(new Fill(orderIds.get(0), orderIds.get(1), BUY, 306, 1000, "user1", "user2"))));
+        assertThat(orderBook.getOrders().isEmpty(), is(true));
+    }
+
+    @Test
+    public void shouldMatchOrderAmendedToCrossingPriceTest(){
+        long sellId = orderBook.addOrder(new Order(SELL, 306, 1.0, "user1"));
+        long buyId = orderBook.addOrder(new Order(BUY, 305, 3.0, "user2"));
+
+        orderBook.amendOrder(buyId, 306, 3.0);
+
+        assertThat(fills, is(Collections.singletonList(new Fill(sellId, buyId, BUY, 306, 1000, "user1", "user2"))));
+        assertThat(orderBook.getOrder(buyId), is(new Order(BUY, 306, 2.0, "user2")));
+        assertThat(orderBook.getAggregatedBuyOrders(), is(Collections.singletonList(new AggregatedOrder(BUY, 306, 2.0))));
+        assertThat(orderBook.getBestOffer(), is(nullValue()));
+    }
+
+    @Test
+    public void shouldLoseQueuePlaceWhenQuantityGoesUpTest(){
+        long firstId = orderBook.addOrder(new Order(SELL, 306, 1.0, "user1"));
+        long secondId = orderBook.addOrder(new Order(SELL, 306, 1.0, "user2"));
+        orderBook.amendOrder(firstId, 306, 2.0);
+
+        long buyId = orderBook.addOrder(new Order(BUY, 306, 1.0, "user3"));
+
+        assertThat(fills, is(Collections.singletonList(new Fill(secondId, buyId, BUY, 306, 1000, "user2", "user3"))));
+        assertThat(orderBook.getOrder(firstId), is(new Order(SELL, 306, 2.0, "user1")));
+    }
+
+    @Test
+    public void shouldNotKeepCancelledIdsQueuedTest(){
+        SimpleOrderBook book = new SimpleOrderBook(fills::add);
+        long restingId = book.addOrder(new Order(SELL, 306, 1.0, "user1"));
+        for(int i = 0; i < 10_000; i++){
+            book.cancelOrder(book.addOrder(new Order(SELL, 306, 1.0, "user2")));
+        }
+        long lastId = book.addOrder(new Order(SELL, 306, 1.0, "user3"));
+        book.amendOrder(lastId, 307, 1.0);
+        book.amendOrder(lastId, 306, 1.0);
+
+        assertThat(book.queued(SELL, 306), is(2));
+        assertThat(book.queued(SELL, 307), is(0));
+
+        long buyId = book.addOrder(new Order(BUY, 306, 2.0, "user4"));
+
+        assertThat(fills, is(Arrays.asList(new Fill(restingId, buyId, BUY, 306, 1000, "user1", "user4"),
+                                           new Fill(lastId, buyId, BUY, 306, 1000, "user3", "user4"))));
+        assertThat(book.queued(SELL, 306), is(0));
+    }
+}
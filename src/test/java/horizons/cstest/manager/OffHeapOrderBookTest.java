@@ -0,0 +1,139 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapOrderBookTest extends OrderBookTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected OrderBook newOrderBook(){
+        return SimpleOrderBook.offHeap();
+    }
+
+    @Test
+    public void shouldReuseSlotsOfCancelledOrdersTest(){
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        for(long orderId = 1; orderId <= 70_000; orderId++){
+            store.put(orderId, new Order(BUY, 300 + orderId % 50, 1.0, "user" + orderId % 7));
+        }
+        assertThat(store.capacity(), is(2 << 16));
+        for(long orderId = 1; orderId <= 70_000; orderId++){
+            store.remove(orderId);
+        }
+        for(long orderId = 70_001; orderId <= 140_000; orderId++){
+            store.put(orderId, new Order(SELL, 300, 1.0, "user1"));
+        }
+
+        assertThat(store.size(), is(70_000));
+        assertThat(store.capacity(), is(2 << 16));
+        assertThat(store.get(1), is(nullValue()));
+        assertThat(store.get(140_000), is(new Order(SELL, 300, 1.0, "user1")));
+    }
+
+    @Test
+    public void shouldKeepOrdersOfEachTraderInTheOrderTheyWereAddedTest(){
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        store.put(1, new Order(SELL, 306, 3.5, "user1"));
+        store.put(2, new Order(SELL, 306, 3.5, "user2"));
+        store.put(3, new Order(BUY, 305, 1.0, "user1"));
+        store.put(4, new Order(SELL, 306, 3.5, "user1"));
+
+        assertThat(store.oldestEqual(new Order(SELL, 306, 3.5, "user1")), is(1L));
+        store.remove(1);
+        assertThat(store.oldestEqual(new Order(SELL, 306, 3.5, "user1")), is(4L));
+        assertThat(store.oldestEqual(new Order(SELL, 306, 3.5, "user3")), is(0L));
+        assertThat(store.orderIdsOf("user1"), is(Arrays.asList(3L, 4L)));
+
+        store.replace(4, new Order(SELL, 307, 3.0, "user1"));
+        assertThat(store.get(4), is(new Order(SELL, 307, 3.0, "user1")));
+        assertThat(store.oldestEqual(new Order(SELL, 307, 3.0, "user1")), is(4L));
+    }
+
+    @Test
+    public void shouldKeepTradersRegisteredByOtherBooksTest(){
+        for(int i = 0; i < 100; i++){
+            Order.traders().intern("offHeapTrader" + i);
+        }
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        store.put(1, new Order(SELL, 306, 3.5, "offHeapTrader99"));
+
+        assertThat(store.ordersOf("offHeapTrader99"), is(Arrays.asList(new Order(SELL, 306, 3.5, "offHeapTrader99"))));
+        assertThat(store.oldestEqual(new Order(SELL, 306, 3.5, "offHeapTrader99")), is(1L));
+    }
+
+    @Test
+    public void shouldKeepOrdersInMappedFileTest() throws Exception {
+        try(SimpleOrderBook orderBook = SimpleOrderBook.offHeap(folder.newFile("orders").toPath())){
+            long orderId = orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+            orderBook.addOrder(new Order(BUY, 305, 2.0, "user2"));
+            orderBook.cancelOrder(orderId);
+
+            assertThat(orderBook.getOrders(), is(Arrays.asList(new Order(BUY, 305, 2.0, "user2"))));
+            assertThat(orderBook.getBestBid().getPrice(), is(305L));
+        }
+    }
+
+    @Test
+    public void shouldFindOldestEqualOrderLikeHeapStoreTest(){
+        OffHeapOrderStore store = new OffHeapOrderStore();
+        HeapOrderStore expected = new HeapOrderStore();
+        Random random = new Random(17);
+        for(long orderId = 1; orderId <= 50_000; orderId++){
+            Order order = new Order(random.nextBoolean() ? BUY : SELL, 300 + random.nextInt(5), 1 + random.nextInt(3),
+                                    "user" + random.nextInt(3));
+            store.put(orderId, order);
+            expected.put(orderId, order);
+            long other = 1 + random.nextInt((int) orderId);
+            if(random.nextBoolean()){
+                assertThat(store.remove(other), is(expected.remove(other)));
+            }
+            else if(expected.contains(other)){
+                Order amended = new Order(expected.get(other).getSide(), 300 + random.nextInt(5), 1 + random.nextInt(3),
+                                          expected.get(other).getTrader());
+                store.replace(other, amended);
+                expected.replace(other, amended);
+            }
+            assertThat(store.oldestEqual(order), is(expected.oldestEqual(order)));
+        }
+        assertThat(store.orders(), is(expected.orders()));
+    }
+
+    @Test
+    public void shouldMapKeysLikeHashMapTest(){
+        LongLongMap map = new LongLongMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(17);
+        for(long i = 0; i < 100_000; i++){
+            long key = 1 + random.nextInt(1_000);
+            if(random.nextBoolean()){
+                map.put(key, i << 32);
+                expected.put(key, i << 32);
+            }
+            else {
+                assertThat(map.remove(key, -1), is(expected.getOrDefault(key, -1L)));
+                expected.remove(key);
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        for(long key = 1; key <= 1_000; key++){
+            assertThat(map.get(key, -1), is(expected.getOrDefault(key, -1L)));
+        }
+        assertThat(map.get(0, -1), is(-1L));
+    }
+}
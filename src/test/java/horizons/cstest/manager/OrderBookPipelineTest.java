@@ -0,0 +1,202 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OrderBookPipelineTest {
+    private final OrderBookPipeline pipeline = new OrderBookPipeline(new SimpleOrderBook(), 8);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @After
+    public void tearDown(){
+        pipeline.close();
+    }
+
+    @Test
+    public void shouldApplyCommandsInOrderTest(){
+        CompletableFuture<Long> first = pipeline.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        CompletableFuture<Long> second = pipeline.addOrder(new Order(SELL, 306, 2.0, "user2"));
+        CompletableFuture<Boolean> cancelled = pipeline.cancelOrder(1);
+        CompletableFuture<Boolean> cancelledByOrder = pipeline.cancelOrder(new Order(SELL, 306, 1.0, "user2"));
+        CompletableFuture<Boolean> amended = pipeline.amendOrder(2, 306, 2.5);
+        CompletableFuture<List<AggregatedOrder>> levels = pipeline.submit(OrderBook::getAllAggregatedOrders);
+
+        assertThat(first.join(), is(1L));
+        assertThat(second.join(), is(2L));
+        assertThat(cancelled.join(), is(true));
+        assertThat(cancelledByOrder.join(), is(false));
+        assertThat(levels.join().size(), is(1));
+        assertThat(amended.join(), is(true));
+        assertThat(levels.join().get(0), is(new AggregatedOrder(SELL, 306, 2.5)));
+    }
+
+    @Test
+    public void shouldFailFutureOfRejectedCommandTest(){
+        try {
+            pipeline.addOrder(null).join();
+            fail();
+        }
+        catch(CompletionException e){
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+        assertThat(pipeline.addOrder(new Order(BUY, 300, 1.0, "user1")).join(), is(1L));
+    }
+
+    @Test
+    public void shouldCompleteFuturesOnCompletionExecutorTest(){
+        AtomicInteger completions = new AtomicInteger();
+        OrderBookPipeline completing = new OrderBookPipeline(new SimpleOrderBook(), 8, completion -> {
+            completions.incrementAndGet();
+            completion.run();
+        });
+        try {
+            assertThat(completing.addOrder(new Order(BUY, 300, 1.0, "user1")).join(), is(1L));
+            assertThat(completing.cancelOrder(2).join(), is(false));
+            assertThat(completions.get(), is(2));
+        }
+        finally {
+            completing.close();
+        }
+    }
+
+    @Test
+    public void shouldCompleteFuturesOnPipelineThreadWhenCompletionExecutorRejectsTest(){
+        OrderBookPipeline rejecting = new OrderBookPipeline(new SimpleOrderBook(), 8, completion -> {
+            throw new RejectedExecutionException();
+        });
+        try {
+            assertThat(rejecting.addOrder(new Order(BUY, 300, 1.0, "user1")).join(), is(1L));
+        }
+        finally {
+            rejecting.close();
+        }
+    }
+
+    @Test
+    public void shouldFailFutureAndStopOnErrorTest(){
+        CompletableFuture<Long> first = pipeline.addOrder(new Order(BUY, 300, 1.0, "user1"));
+        CompletableFuture<Object> failing = pipeline.submit(orderBook -> {
+            throw new AssertionError("broken");
+        });
+        List<CompletableFuture<Long>> later = new ArrayList<>();
+        try {
+            for(int i = 0; i < 100; i++){
+                later.add(pipeline.addOrder(new Order(BUY, 300, 1.0, "user1")));
+            }
+        }
+        catch(IllegalStateException e){
+            // stopped
+        }
+
+        assertThat(first.join(), is(1L));
+        try {
+            failing.join();
+            fail();
+        }
+        catch(CompletionException e){
+            assertThat(e.getCause(), instanceOf(AssertionError.class));
+        }
+        for(CompletableFuture<Long> result : later){
+            try {
+                result.join();
+                fail();
+            }
+            catch(CompletionException e){
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+        thrown.expect(IllegalStateException.class);
+        pipeline.addOrder(new Order(BUY, 300, 1.0, "user1"));
+    }
+
+    @Test
+    public void shouldWrapAroundRingWithManyProducersTest() throws InterruptedException {
+        int threads = 4;
+        int ordersPerThread = 5000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> producers = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            Thread producer = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch(InterruptedException e){
+                    return;
+                }
+                CompletableFuture<Long> last = null;
+                for(int i = 0; i < ordersPerThread; i++){
+                    last = pipeline.addOrder(new Order(i % 2 == 0 ? BUY : SELL, i % 2 == 0 ? 300 : 310, 1.0, "user1"));
+                }
+                last.join();
+            });
+            producer.start();
+            producers.add(producer);
+        }
+        start.countDown();
+        for(Thread producer : producers){
+            producer.join();
+        }
+
+        List<AggregatedOrder> levels = pipeline.submit(OrderBook::getAllAggregatedOrders).join();
+        assertThat(levels.get(0), is(new AggregatedOrder(BUY, 300, threads * ordersPerThread / 2)));
+        assertThat(levels.get(1), is(new AggregatedOrder(SELL, 310, threads * ordersPerThread / 2)));
+    }
+
+    @Test
+    public void shouldApplyOrRejectEveryCommandRacingCloseTest() throws InterruptedException {
+        // completed on the pipeline thread, so done by the time close returns
+        OrderBookPipeline closing = new OrderBookPipeline(new SimpleOrderBook(), 8, Runnable::run);
+        Queue<CompletableFuture<Long>> results = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                while(true) {
+                    CompletableFuture<Long> result = closing.addOrder(new Order(BUY, 300, 1.0, "user1"));
+                    results.add(result);
+                    started.countDown();
+                }
+            }
+            catch(IllegalStateException e){
+                // closed
+            }
+        });
+        producer.start();
+        started.await();
+        closing.close();
+        producer.join();
+
+        for(CompletableFuture<Long> result : results){
+            assertThat(result.isDone(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldRejectCapacityThatIsNotPowerOfTwoTest(){
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Check pipeline arguments!");
+        new OrderBookPipeline(new SimpleOrderBook(), 10);
+    }
+}
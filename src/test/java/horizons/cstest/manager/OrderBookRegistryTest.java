@@ -0,0 +1,158 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Order;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsInstanceOf.instanceOf;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class OrderBookRegistryTest {
+    private final OrderBookRegistry registry = new OrderBookRegistry(4);
+
+    @After
+    public void tearDown(){
+        registry.close();
+    }
+
+    @Test
+    public void shouldKeepOneBookPerSymbolTest(){
+        long goldOrderId = registry.addOrder("XAU", new Order(SELL, 1500, 1.0, "user1")).join();
+        registry.addOrder("XAG", new Order(SELL, 17, 2.0, "user1")).join();
+        registry.addOrder("XAG", new Order(BUY, 16, 3.0, "user2")).join();
+
+        assertThat(registry.getSymbols(), is(Arrays.asList("XAG", "XAU")));
+        assertThat(registry.cancelOrder("XAU", goldOrderId).join(), is(true));
+        assertThat(registry.submit("XAU", OrderBook::getOrders).join().isEmpty(), is(true));
+        assertThat(registry.submit("XAG", OrderBook::getOrders).join().size(), is(2));
+    }
+
+    @Test
+    public void shouldReadTopLevelsOfEveryBookTest(){
+        registry.addOrder("XAU", new Order(BUY, 1500, 1.0, "user1"));
+        registry.addOrder("XAU", new Order(BUY, 1490, 1.0, "user1"));
+        registry.addOrder("XAG", new Order(BUY, 16, 3.0, "user2"));
+        registry.addOrder("XPT", new Order(SELL, 900, 3.0, "user2"));
+
+        SortedMap<String, List<AggregatedOrder>> topLevels = registry.getTopLevels(BUY, 1);
+        assertThat(topLevels.size(), is(3));
+        assertThat(topLevels.get("XAU"), is(Arrays.asList(new AggregatedOrder(BUY, 1500, 1.0))));
+        assertThat(topLevels.get("XAG"), is(Arrays.asList(new AggregatedOrder(BUY, 16, 3.0))));
+        assertThat(topLevels.get("XPT").isEmpty(), is(true));
+        assertThat(registry.getBestOffers().get("XPT"), is(new AggregatedOrder(SELL, 900, 3.0)));
+        assertThat(registry.getBestOffers().get("XAU") == null, is(true));
+    }
+
+    @Test
+    public void shouldFailFutureOfRejectedOperationTest(){
+        try {
+            registry.addOrder("XAU", null).join();
+            fail();
+        }
+        catch(CompletionException e){
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+        // the shard carries on
+        assertThat(registry.addOrder("XAU", new Order(BUY, 1500, 1.0, "user1")).join(), is(1L));
+    }
+
+    @Test
+    public void shouldNotRunCallbacksOnShardThreadTest(){
+        CountDownLatch release = new CountDownLatch(1);
+        registry.submit("XAU", orderBook -> {
+            try {
+                release.await();
+            }
+            catch(InterruptedException e){
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        CompletableFuture<String> callbackThread = registry.addOrder("XAU", new Order(BUY, 1500, 1.0, "user1"))
+                                                           .thenApply(orderId -> Thread.currentThread().getName());
+        release.countDown();
+
+        assertThat(callbackThread.join().startsWith("order-book-shard"), is(false));
+    }
+
+    @Test
+    public void shouldFailEveryOperationRacingCloseTest() throws InterruptedException {
+        OrderBookRegistry closing = new OrderBookRegistry(1);
+        Queue<CompletableFuture<Long>> results = new ConcurrentLinkedQueue<>();
+        CountDownLatch started = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            while(true) {
+                CompletableFuture<Long> result = closing.addOrder("XAU", new Order(BUY, 1500, 1.0, "user1"));
+                results.add(result);
+                started.countDown();
+                if(result.isCompletedExceptionally()){
+                    return;
+                }
+            }
+        });
+        producer.start();
+        started.await();
+        closing.close();
+        producer.join();
+
+        for(CompletableFuture<Long> result : results){
+            try {
+                result.join();
+            }
+            catch(CompletionException e){
+                assertThat(e.getCause(), instanceOf(IllegalStateException.class));
+            }
+        }
+    }
+
+    @Test
+    public void shouldAggregateOrdersFromManyThreadsTest() throws InterruptedException {
+        String[] symbols = {"XAU", "XAG", "XPT", "XPD", "CU", "AL", "NI", "ZN"};
+        int threads = 4;
+        int ordersPerThread = 2000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for(int t = 0; t < threads; t++){
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                }
+                catch(InterruptedException e){
+                    return;
+                }
+                List<CompletableFuture<Long>> results = new ArrayList<>();
+                for(int i = 0; i < ordersPerThread; i++){
+                    results.add(registry.addOrder(symbols[i % symbols.length], new Order(BUY, 100, 1.0, "user1")));
+                }
+                results.forEach(CompletableFuture::join);
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        start.countDown();
+        for(Thread writer : writers){
+            writer.join();
+        }
+
+        SortedMap<String, AggregatedOrder> bestBids = registry.getBestBids();
+        assertThat(bestBids.size(), is(symbols.length));
+        for(String symbol : symbols){
+            assertThat(bestBids.get(symbol), is(new AggregatedOrder(BUY, 100, threads * ordersPerThread / symbols.length)));
+        }
+    }
+}
@@ -1,24 +1,34 @@
 package horizons.cstest.manager;
 
 import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.LevelChange;
 import horizons.cstest.model.Order;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
-import java.util.List;
+import java.util.*;
 
 import static horizons.cstest.model.OrderSide.BUY;
 import static horizons.cstest.model.OrderSide.SELL;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
 import static org.junit.Assert.assertThat;
 
-public class OrderBookTest {
+// behaviour expected from every OrderBook implementation
+public abstract class OrderBookTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
 
     private Order sellOrder1, sellOrder2, sellOrder3, sellOrder4;
     private Order buyOrder1, buyOrder2, buyOrder3, buyOrder4;
     private AggregatedOrder expectedSellOrder1, expectedSellOrder2, expectedSellOrder3;
     private AggregatedOrder expectedBuyOrder1, expectedBuyOrder2, expectedBuyOrder3;
 
+    protected abstract OrderBook newOrderBook();
+
     @Before
     public void setup(){
         sellOrder1 = new Order(SELL, 306, 3.5, "user1");
@@ -42,7 +52,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAddOrder(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(sellOrder1);
 
         List<Order> orders = orderBook.getOrders();
@@ -61,7 +71,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyCancelOrderTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(sellOrder1);
 
         List<Order> orders = orderBook.getOrders();
@@ -83,7 +93,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAggregateSellOrdersTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(sellOrder1);
         orderBook.addOrder(sellOrder3);
         orderBook.addOrder(sellOrder4);
@@ -106,7 +116,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAggregateSellOrdersAndSortAscendingTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(sellOrder3);
         orderBook.addOrder(sellOrder1);
         orderBook.addOrder(sellOrder4);
@@ -130,7 +140,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAggregateBuyOrdersTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(buyOrder1);
         orderBook.addOrder(buyOrder2);
         orderBook.addOrder(buyOrder3);
@@ -153,7 +163,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAggregateBuyOrdersAndSortDescendingTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(buyOrder1);
         orderBook.addOrder(buyOrder2);
         orderBook.addOrder(buyOrder3);
@@ -175,7 +185,7 @@ public class OrderBookTest {
 
     @Test
     public void shouldSuccessfullyAddAndRemoveBuyAndSellOrdersTest(){
-        OrderBook orderBook = new OrderBook();
+        OrderBook orderBook = newOrderBook();
         orderBook.addOrder(buyOrder1);
         orderBook.addOrder(buyOrder2);
         orderBook.addOrder(buyOrder3);
@@ -205,4 +215,407 @@ public class OrderBookTest {
         assertThat(aggregatedOrders.size(), is(5));
         assertThat(aggregatedOrders.get(1).toString(), is("2.0 kg for £305"));
     }
+
+    @Test
+    public void shouldAssignDistinctOrderIdsTest(){
+        OrderBook orderBook = newOrderBook();
+        long sellOrderId = orderBook.addOrder(sellOrder1);
+        long buyOrderId = orderBook.addOrder(buyOrder1);
+
+        assertThat(sellOrderId == buyOrderId, is(false));
+        assertThat(orderBook.getOrder(sellOrderId), is(sellOrder1));
+        assertThat(orderBook.getOrder(buyOrderId), is(buyOrder1));
+    }
+
+    @Test
+    public void shouldSuccessfullyCancelOrderByIdTest(){
+        OrderBook orderBook = newOrderBook();
+        long orderId = orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder4);
+
+        assertThat(orderBook.cancelOrder(orderId), is(true));
+        assertThat(orderBook.getOrder(orderId), is(nullValue()));
+        assertThat(orderBook.getOrders().size(), is(1));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("2.0 kg for £306"));
+
+        // cancelling twice must not touch the aggregated orders again
+        assertThat(orderBook.cancelOrder(orderId), is(false));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("2.0 kg for £306"));
+    }
+
+    @Test
+    public void shouldIgnoreCancelOfUnknownOrderTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder1);
+
+        assertThat(orderBook.cancelOrder(sellOrder4), is(false));
+        assertThat(orderBook.cancelOrder(42L), is(false));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("3.5 kg for £306"));
+    }
+
+    @Test
+    public void shouldIgnoreOrderIdsBelowOneTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder1);
+
+        assertThat(orderBook.getOrder(0), is(nullValue()));
+        assertThat(orderBook.getOrder(-1), is(nullValue()));
+        assertThat(orderBook.cancelOrder(0L), is(false));
+        assertThat(orderBook.cancelOrder(-1L), is(false));
+        assertThat(orderBook.amendOrder(0, 306, 1.0), is(false));
+        assertThat(orderBook.getOrders(), is(Arrays.asList(sellOrder1)));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("3.5 kg for £306"));
+    }
+
+    @Test
+    public void shouldCancelOldestOfEqualOrdersTest(){
+        OrderBook orderBook = newOrderBook();
+        long firstId = orderBook.addOrder(sellOrder1);
+        long secondId = orderBook.addOrder(sellOrder1);
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("7.0 kg for £306"));
+
+        assertThat(orderBook.cancelOrder(sellOrder1), is(true));
+        assertThat(orderBook.getOrder(firstId), is(nullValue()));
+        assertThat(orderBook.getOrder(secondId), is(sellOrder1));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("3.5 kg for £306"));
+
+        assertThat(orderBook.cancelOrder(sellOrder1), is(true));
+        assertThat(orderBook.getOrders().size(), is(0));
+        assertThat(orderBook.getAllAggregatedOrders().size(), is(0));
+    }
+
+    @Test
+    public void shouldCancelOldestOfEqualOrdersLeftAfterCancelByIdTest(){
+        OrderBook orderBook = newOrderBook();
+        List<Long> orderIds = new ArrayList<>();
+        for(int i = 0; i < 1000; i++){
+            orderIds.add(orderBook.addOrder(sellOrder1));
+        }
+        for(int i = 0; i < 1000; i += 2){
+            assertThat(orderBook.cancelOrder(orderIds.get(i)), is(true));
+        }
+
+        assertThat(orderBook.cancelOrder(sellOrder1), is(true));
+        assertThat(orderBook.getOrder(orderIds.get(1)), is(nullValue()));
+        assertThat(orderBook.getOrder(orderIds.get(3)), is(sellOrder1));
+        assertThat(orderBook.getOrderCount(), is(499));
+    }
+
+    @Test
+    public void shouldKeepLevelsSortedWhenLevelsComeAndGoTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(buyOrder4);
+        orderBook.addOrder(buyOrder2);
+        orderBook.cancelOrder(sellOrder2);
+        orderBook.cancelOrder(buyOrder2);
+        orderBook.addOrder(sellOrder3);
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(buyOrder2);
+
+        List<AggregatedOrder> aggregatedOrders = orderBook.getAllAggregatedOrders();
+        assertThat(aggregatedOrders.size(), is(6));
+        assertThat(aggregatedOrders.get(0).toString(), is("4.0 kg for £307"));
+        assertThat(aggregatedOrders.get(1).toString(), is("3.5 kg for £305"));
+        assertThat(aggregatedOrders.get(2).toString(), is("6.2 kg for £304"));
+        assertThat(aggregatedOrders.get(3).toString(), is("3.5 kg for £306"));
+        assertThat(aggregatedOrders.get(4).toString(), is("4.0 kg for £307"));
+        assertThat(aggregatedOrders.get(5).toString(), is("1.2 kg for £310"));
+    }
+
+    @Test
+    public void shouldReturnBestBidAndOfferAndSpreadTest(){
+        OrderBook orderBook = newOrderBook();
+        assertThat(orderBook.getBestBid(), is(nullValue()));
+        assertThat(orderBook.getBestOffer(), is(nullValue()));
+        assertThat(orderBook.getSpread(), is(nullValue()));
+
+        orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(buyOrder3);
+        orderBook.addOrder(buyOrder4);
+        assertThat(orderBook.getBestBid(), is(expectedBuyOrder2));
+        assertThat(orderBook.getSpread(), is(nullValue()));
+
+        orderBook.addOrder(sellOrder2);
+        orderBook.addOrder(sellOrder3);
+        assertThat(orderBook.getBestOffer(), is(expectedSellOrder2));
+        assertThat(orderBook.getSpread(), is(2L));
+
+        // crossed book
+        orderBook.addOrder(buyOrder2);
+        assertThat(orderBook.getBestBid(), is(expectedBuyOrder1));
+        assertThat(orderBook.getSpread(), is(0L));
+    }
+
+    @Test
+    public void shouldReturnTopLevelsInBoardOrderTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(buyOrder2);
+        orderBook.addOrder(buyOrder3);
+        orderBook.addOrder(buyOrder4);
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+
+        List<AggregatedOrder> topBuyLevels = orderBook.getTopLevels(BUY, 2);
+        assertThat(topBuyLevels.size(), is(2));
+        assertThat(topBuyLevels.get(0), is(expectedBuyOrder1));
+        assertThat(topBuyLevels.get(1), is(expectedBuyOrder2));
+
+        List<AggregatedOrder> topSellLevels = orderBook.getTopLevels(SELL, 10);
+        assertThat(topSellLevels.size(), is(2));
+        assertThat(topSellLevels.get(0).toString(), is("3.5 kg for £306"));
+        assertThat(topSellLevels.get(1), is(expectedSellOrder3));
+
+        assertThat(orderBook.getTopLevels(SELL, 0).size(), is(0));
+    }
+
+    @Test
+    public void topLevelsThrowsExceptionForNegativeCountTest(){
+        exception.expect(IllegalArgumentException.class);
+        newOrderBook().getTopLevels(BUY, -1);
+    }
+
+    @Test
+    public void shouldAmendQuantityInPlaceTest(){
+        OrderBook orderBook = newOrderBook();
+        long orderId = orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder4);
+        List<LevelChange> changes = new ArrayList<>();
+        orderBook.subscribe(changes::add, Runnable::run, 16);
+
+        assertThat(orderBook.amendOrder(orderId, 306, 1.0), is(true));
+
+        assertThat(orderBook.getAggregatedSellOrders(), is(Collections.singletonList(new AggregatedOrder(SELL, 306, 3.0))));
+        assertThat(orderBook.getOrders(), is(Arrays.asList(new Order(SELL, 306, 1.0, "user1"), sellOrder4)));
+        assertThat(changes, is(Collections.singletonList(new LevelChange(SELL, 306, 3000))));
+        assertThat(orderBook.cancelOrder(orderId), is(true));
+        assertThat(orderBook.getAggregatedSellOrders(), is(Collections.singletonList(new AggregatedOrder(SELL, 306, 2.0))));
+    }
+
+    @Test
+    public void shouldAmendPriceTest(){
+        OrderBook orderBook = newOrderBook();
+        long orderId = orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(buyOrder3);
+
+        assertThat(orderBook.amendOrder(orderId, 307, 4.0), is(true));
+
+        assertThat(orderBook.getAggregatedBuyOrders(), is(Arrays.asList(new AggregatedOrder(BUY, 307, 4.0),
+                                                                        new AggregatedOrder(BUY, 305, 2.0))));
+        assertThat(orderBook.getOrder(orderId), is(new Order(BUY, 307, 4.0, "user1")));
+        assertThat(orderBook.getOrdersForTrader("user1"), is(Collections.singletonList(new Order(BUY, 307, 4.0, "user1"))));
+        assertThat(orderBook.cancelOrder(new Order(BUY, 307, 4.0, "user1")), is(true));
+        assertThat(orderBook.amendOrder(orderId, 307, 1.0), is(false));
+    }
+
+    @Test
+    public void shouldNotAmendToZeroQuantityTest(){
+        OrderBook orderBook = newOrderBook();
+        long orderId = orderBook.addOrder(buyOrder1);
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Check amend arguments!");
+        orderBook.amendOrder(orderId, 305, 0);
+    }
+
+    @Test
+    public void shouldCountOrdersAndLevelsTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrders(Arrays.asList(sellOrder1, sellOrder4, sellOrder2, buyOrder1));
+        long orderId = orderBook.addOrder(buyOrder4);
+
+        assertThat(orderBook.getOrderCount(), is(5));
+        assertThat(orderBook.getLevelCount(SELL), is(2));
+        assertThat(orderBook.getLevelCount(BUY), is(2));
+
+        orderBook.cancelOrder(orderId);
+        assertThat(orderBook.getOrderCount(), is(4));
+        assertThat(orderBook.getLevelCount(BUY), is(1));
+    }
+
+    @Test
+    public void shouldShareBoardSnapshotUntilBookChangesTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder1);
+        long orderId = orderBook.addOrder(buyOrder1);
+
+        BoardSnapshot snapshot = orderBook.getBoardSnapshot();
+        assertThat(orderBook.getBoardSnapshot() == snapshot, is(true));
+        assertThat(snapshot.getBestBid(), is(new AggregatedOrder(BUY, 305, 3.5)));
+        assertThat(snapshot.getSellLevels(), is(Collections.singletonList(new AggregatedOrder(SELL, 306, 3.5))));
+
+        orderBook.cancelOrder(orderId);
+        BoardSnapshot next = orderBook.getBoardSnapshot();
+        assertThat(next.getVersion() > snapshot.getVersion(), is(true));
+        assertThat(next.getBestBid(), is(nullValue()));
+        // the earlier snapshot still holds the board as it was
+        assertThat(snapshot.getBuyLevels().size(), is(1));
+
+        exception.expect(UnsupportedOperationException.class);
+        next.getSellLevels().clear();
+    }
+
+    @Test
+    public void shouldAnswerDepthAndVwapQueriesTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder1); // 3.5 kg for £306
+        orderBook.addOrder(sellOrder2); // 1.2 kg for £310
+        orderBook.addOrder(sellOrder3); // 4.0 kg for £307
+        orderBook.addOrder(sellOrder4); // 2.0 kg for £306
+        orderBook.addOrder(buyOrder1);  // 3.5 kg for £305
+        orderBook.addOrder(buyOrder4);  // 6.2 kg for £304
+
+        assertThat(orderBook.getDepthWithin(SELL, 0), is(5.5));
+        assertThat(orderBook.getDepthWithin(SELL, 1), is(9.5));
+        assertThat(orderBook.getDepthWithin(SELL, Long.MAX_VALUE), is(10.7));
+        assertThat(orderBook.getDepthWithin(BUY, 1), is(9.7));
+        assertThat(orderBook.getVwapForQuantity(SELL, 5.5), is(306.0));
+        assertThat(orderBook.getVwapForQuantity(SELL, 7.5), is((5.5 * 306 + 2.0 * 307) / 7.5));
+        assertThat(orderBook.getVwapForQuantity(BUY, 4.5), is((3.5 * 305 + 1.0 * 304) / 4.5));
+        assertThat(orderBook.getVwapForQuantity(BUY, 9.8), is(nullValue()));
+        assertThat(orderBook.getCumulativeDepth(SELL), is(Arrays.asList(new AggregatedOrder(SELL, 306, 5.5),
+                                                                         new AggregatedOrder(SELL, 307, 9.5),
+                                                                         new AggregatedOrder(SELL, 310, 10.7))));
+
+        orderBook.cancelOrder(sellOrder1);
+        assertThat(orderBook.getDepthWithin(SELL, 1), is(6.0));
+        assertThat(orderBook.getVwapForQuantity(SELL, 3.0), is((2.0 * 306 + 1.0 * 307) / 3.0));
+        assertThat(newOrderBook().getDepthWithin(BUY, 10), is(0.0));
+    }
+
+    @Test
+    public void shouldNotLeaveGhostLevelsAfterCancellingFractionalQuantitiesTest(){
+        OrderBook orderBook = newOrderBook();
+        Order first = new Order(SELL, 306, 0.1, "user1");
+        Order second = new Order(SELL, 306, 0.2, "user2");
+        orderBook.addOrder(first);
+        orderBook.addOrder(second);
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("0.3 kg for £306"));
+
+        orderBook.cancelOrder(first);
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("0.2 kg for £306"));
+        orderBook.cancelOrder(second);
+        assertThat(orderBook.getAggregatedSellOrders().size(), is(0));
+    }
+
+    @Test
+    public void shouldAddAndCancelOrdersInBatchesTest(){
+        OrderBook orderBook = newOrderBook();
+        List<Long> orderIds = orderBook.addOrders(Arrays.asList(sellOrder1, sellOrder3, sellOrder4, buyOrder1, buyOrder3));
+
+        assertThat(orderIds.size(), is(5));
+        assertThat(orderBook.getOrder(orderIds.get(2)), is(sellOrder4));
+        assertThat(orderBook.getAggregatedSellOrders(), is(Arrays.asList(expectedSellOrder1, expectedSellOrder2)));
+        assertThat(orderBook.getAggregatedBuyOrders(), is(Arrays.asList(expectedBuyOrder2)));
+
+        // unknown ids are ignored
+        assertThat(orderBook.cancelOrders(Arrays.asList(orderIds.get(0), orderIds.get(3), 42L)), is(2));
+        assertThat(orderBook.getOrders().size(), is(3));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("2.0 kg for £306"));
+        assertThat(orderBook.getAggregatedBuyOrders().get(0).toString(), is("2.0 kg for £305"));
+    }
+
+    @Test
+    public void shouldNetAddsAndCancelsOfMixedBatchTest(){
+        OrderBook orderBook = newOrderBook();
+        long sellOrderId = orderBook.addOrder(sellOrder1);
+        long buyOrderId = orderBook.addOrder(buyOrder2);
+
+        // the 306 sell level is replaced by an order of another trader and the 307 buy level goes away
+        List<Long> orderIds = orderBook.applyBatch(new OrderBatch()
+                .add(new Order(SELL, 306, 3.5, "user2"))
+                .add(buyOrder4)
+                .cancel(sellOrderId)
+                .cancel(buyOrderId));
+
+        assertThat(orderIds.size(), is(2));
+        assertThat(orderBook.getOrders(), is(Arrays.asList(new Order(SELL, 306, 3.5, "user2"), buyOrder4)));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("3.5 kg for £306"));
+        assertThat(orderBook.getAggregatedBuyOrders(), is(Arrays.asList(expectedBuyOrder3)));
+        assertThat(orderBook.cancelOrder(new Order(SELL, 306, 3.5, "user2")), is(true));
+        assertThat(orderBook.getAggregatedSellOrders().size(), is(0));
+    }
+
+    @Test
+    public void shouldPublishEveryLevelChangeToSubscriberTest(){
+        OrderBook orderBook = newOrderBook();
+        List<LevelChange> changes = new ArrayList<>();
+        Subscription subscription = orderBook.subscribe(changes::add, Runnable::run, 100);
+
+        long orderId = orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder4);
+        orderBook.cancelOrder(orderId);
+        orderBook.cancelOrder(sellOrder4);
+        subscription.cancel();
+        orderBook.addOrder(buyOrder1);
+
+        assertThat(changes, is(Arrays.asList(new LevelChange(SELL, 306, 3500),
+                                              new LevelChange(SELL, 306, 5500),
+                                              new LevelChange(SELL, 306, 2000),
+                                              new LevelChange(SELL, 306, 0))));
+        assertThat(changes.get(3).isRemoved(), is(true));
+    }
+
+    @Test
+    public void shouldConflateLevelChangesForSlowSubscriberTest(){
+        OrderBook orderBook = newOrderBook();
+        List<LevelChange> changes = new ArrayList<>();
+        Deque<Runnable> pendingDeliveries = new ArrayDeque<>();
+        orderBook.subscribe(changes::add, pendingDeliveries::add);
+
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(buyOrder1);
+        orderBook.addOrder(sellOrder4);
+        orderBook.applyBatch(new OrderBatch().add(buyOrder3).add(sellOrder2));
+        orderBook.cancelOrder(sellOrder1);
+        while(!pendingDeliveries.isEmpty()){
+            pendingDeliveries.poll().run();
+        }
+
+        // only the latest quantity of each level is delivered
+        assertThat(changes.size(), is(3));
+        assertThat(changes.containsAll(Arrays.asList(new LevelChange(SELL, 306, 2000),
+                                                     new LevelChange(BUY, 305, 5500),
+                                                     new LevelChange(SELL, 310, 1200))), is(true));
+    }
+
+    @Test
+    public void shouldReturnOrdersOfTraderTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrder(sellOrder1);
+        orderBook.addOrder(sellOrder2);
+        long orderId = orderBook.addOrder(buyOrder2);
+        orderBook.addOrder(buyOrder1);
+
+        assertThat(orderBook.getOrdersForTrader("user1"), is(Arrays.asList(sellOrder1, buyOrder2, buyOrder1)));
+        assertThat(orderBook.getOrdersForTrader("user2"), is(Arrays.asList(sellOrder2)));
+        assertThat(orderBook.getOrdersForTrader("user9").size(), is(0));
+
+        orderBook.cancelOrder(orderId);
+        assertThat(orderBook.getOrdersForTrader("user1"), is(Arrays.asList(sellOrder1, buyOrder1)));
+    }
+
+    @Test
+    public void shouldCancelAllOrdersOfTraderTest(){
+        OrderBook orderBook = newOrderBook();
+        orderBook.addOrders(Arrays.asList(sellOrder1, sellOrder2, sellOrder3, sellOrder4, buyOrder1, buyOrder2, buyOrder4));
+
+        assertThat(orderBook.cancelAllForTrader("user1"), is(4));
+        assertThat(orderBook.getOrdersForTrader("user1").size(), is(0));
+        assertThat(orderBook.getOrders(), is(Arrays.asList(sellOrder2, sellOrder4, buyOrder4)));
+        assertThat(orderBook.getAggregatedSellOrders().get(0).toString(), is("2.0 kg for £306"));
+        assertThat(orderBook.getAggregatedSellOrders().size(), is(2));
+        assertThat(orderBook.getAggregatedBuyOrders(), is(Arrays.asList(expectedBuyOrder3)));
+
+        assertThat(orderBook.cancelAllForTrader("user1"), is(0));
+    }
+
+    @Test
+    public void ordersForTraderThrowsExceptionForBlankTraderTest(){
+        exception.expect(IllegalArgumentException.class);
+        newOrderBook().getOrdersForTrader(" ");
+    }
 }
@@ -0,0 +1,158 @@
+package horizons.cstest.manager;
+
+import com.sun.management.ThreadMXBean;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class PriceLadderTest {
+
+    @Test
+    public void shouldAggregateQuantitiesPerPriceTest(){
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500);
+        ladder.add(310, 1200);
+        ladder.add(306, 2000);
+
+        assertThat(ladder.size(), is(2));
+        assertThat(ladder.quantity(306), is(5500L));
+        assertThat(ladder.quantity(310), is(1200L));
+        assertThat(ladder.quantity(307), is(0L));
+    }
+
+    @Test
+    public void shouldRemoveLevelWhenLastQuantityIsRemovedTest(){
+        PriceLadder ladder = new PriceLadder(SELL);
+        ladder.add(306, 3500);
+        ladder.add(306, 2000);
+
+        assertThat(ladder.remove(306, 3500), is(true));
+        assertThat(ladder.quantity(306), is(2000L));
+        assertThat(ladder.remove(306, 2000), is(true));
+        assertThat(ladder.isEmpty(), is(true));
+        assertThat(ladder.remove(306, 2000), is(false));
+    }
+
+    @Test
+    public void shouldWalkBuyLevelsDescendingAndSellLevelsAscendingTest(){
+        PriceLadder buyLadder = new PriceLadder(BUY);
+        PriceLadder sellLadder = new PriceLadder(SELL);
+        for(long price : new long[]{305, 310, 301, 307}){
+            buyLadder.add(price, 1000);
+            sellLadder.add(price, 1000);
+        }
+
+        assertThat(buyLadder.priceAt(0), is(310L));
+        assertThat(buyLadder.priceAt(3), is(301L));
+        assertThat(sellLadder.priceAt(0), is(301L));
+        assertThat(sellLadder.priceAt(3), is(310L));
+
+        List<AggregatedOrder> topBuyLevels = buyLadder.levels(2);
+        assertThat(topBuyLevels.size(), is(2));
+        assertThat(topBuyLevels.get(0), is(new AggregatedOrder(BUY, 310, 1.0)));
+        assertThat(topBuyLevels.get(1), is(new AggregatedOrder(BUY, 307, 1.0)));
+    }
+
+    @Test
+    public void shouldGrowBeyondInitialCapacityTest(){
+        PriceLadder ladder = new PriceLadder(SELL);
+        for(long price = 1000; price > 0; price--){
+            ladder.add(price, 1000);
+        }
+        assertThat(ladder.size(), is(1000));
+        for(int level = 0; level < 1000; level++){
+            assertThat(ladder.priceAt(level), is(level + 1L));
+        }
+    }
+
+    @Test
+    public void shouldNotAllocateWhenUpdatingExistingLevelsTest(){
+        PriceLadder ladder = new PriceLadder(BUY);
+        for(long price = 300; price < 310; price++){
+            ladder.add(price, 1000);
+        }
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        updateLevels(ladder); // warm up
+        threads.getThreadAllocatedBytes(threadId);
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        updateLevels(ladder);
+        long allocatedAfter = threads.getThreadAllocatedBytes(threadId);
+
+        assertThat(allocatedAfter - allocatedBefore, is(0L));
+        assertThat(ladder.size(), is(10));
+    }
+
+    @Test
+    public void shouldMatchBruteForceSumsWhileLevelsChangeTest(){
+        Random random = new Random(42);
+        for(OrderSide side : OrderSide.values()){
+            PriceLadder ladder = new PriceLadder(side);
+            Map<Long, Long> levels = new TreeMap<>();
+            for(int i = 0; i < 2000; i++){
+                long price = 100 + random.nextInt(50);
+                long quantity = 1 + random.nextInt(1000);
+                if(random.nextInt(3) == 0 && levels.containsKey(price)){
+                    long removed = Math.min(quantity, levels.get(price));
+                    ladder.remove(price, removed);
+                    levels.merge(price, -removed, (previous, change) -> previous + change == 0 ? null : previous + change);
+                }
+                else {
+                    ladder.add(price, quantity);
+                    levels.merge(price, quantity, Long::sum);
+                }
+                if(i % 7 == 0){
+                    assertSums(side, ladder, levels, random.nextInt(20), 1 + random.nextInt(30_000));
+                }
+            }
+        }
+    }
+
+    private static void assertSums(OrderSide side, PriceLadder ladder, Map<Long, Long> levels, long priceRange, long quantity){
+        List<Long> prices = new ArrayList<>(levels.keySet());
+        if(BUY == side){
+            Collections.reverse(prices);
+        }
+        long depth = 0;
+        long remaining = quantity;
+        double notional = 0;
+        for(long price : prices){
+            if(Math.abs(price - prices.get(0)) <= priceRange){
+                depth += levels.get(price);
+            }
+            long taken = Math.min(remaining, levels.get(price));
+            notional += (double) price * taken;
+            remaining -= taken;
+        }
+        assertThat(ladder.depthWithin(priceRange), is(depth));
+        Double vwap = ladder.vwap(quantity);
+        if(remaining > 0){
+            assertThat(vwap == null, is(true));
+        }
+        else {
+            assertThat(Math.abs(vwap - notional / quantity) < 1e-9, is(true));
+        }
+    }
+
+    private static void updateLevels(PriceLadder ladder){
+        for(int i = 0; i < 100_000; i++){
+            long price = 300 + i % 10;
+            ladder.add(price, 2500);
+            ladder.remove(price, 2500);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package horizons.cstest.manager;
+
+public class SimpleOrderBookTest extends OrderBookTest {
+
+    @Override
+    protected OrderBook newOrderBook(){
+        return new SimpleOrderBook();
+    }
+}
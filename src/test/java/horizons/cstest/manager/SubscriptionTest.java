@@ -0,0 +1,72 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.LevelChange;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class SubscriptionTest {
+
+    private final List<LevelChange> delivered = new ArrayList<>();
+    private final Deque<Runnable> pendingDeliveries = new ArrayDeque<>();
+
+    @Test
+    public void shouldQueueChangesUpToCapacityThenConflateTest(){
+        Subscription subscription = new Subscription(delivered::add, pendingDeliveries::add, 2, () -> {});
+        subscription.offer(new LevelChange(BUY, 305, 1000));
+        subscription.offer(new LevelChange(BUY, 305, 2000));
+        subscription.offer(new LevelChange(BUY, 305, 3000));
+        subscription.offer(new LevelChange(SELL, 306, 1000));
+        subscription.offer(new LevelChange(BUY, 305, 4000));
+        runPendingDeliveries();
+
+        assertThat(delivered, is(Arrays.asList(new LevelChange(BUY, 305, 1000),
+                                               new LevelChange(BUY, 305, 2000),
+                                               new LevelChange(BUY, 305, 4000),
+                                               new LevelChange(SELL, 306, 1000))));
+        assertThat(subscription.getConflatedChanges(), is(1L));
+    }
+
+    @Test
+    public void shouldScheduleOneDeliveryAtATimeTest(){
+        Subscription subscription = new Subscription(delivered::add, pendingDeliveries::add, 0, () -> {});
+        subscription.offer(new LevelChange(BUY, 305, 1000));
+        subscription.offer(new LevelChange(BUY, 304, 1000));
+        assertThat(pendingDeliveries.size(), is(1));
+
+        runPendingDeliveries();
+        assertThat(delivered.size(), is(2));
+
+        subscription.offer(new LevelChange(BUY, 304, 0));
+        assertThat(pendingDeliveries.size(), is(1));
+    }
+
+    @Test
+    public void shouldStopDeliveringOnceCancelledTest(){
+        boolean[] removed = new boolean[1];
+        Subscription subscription = new Subscription(delivered::add, pendingDeliveries::add, 0, () -> removed[0] = true);
+        subscription.offer(new LevelChange(BUY, 305, 1000));
+        subscription.cancel();
+        subscription.offer(new LevelChange(BUY, 304, 1000));
+        runPendingDeliveries();
+
+        assertThat(removed[0], is(true));
+        assertThat(subscription.isCancelled(), is(true));
+        assertThat(delivered.size(), is(0));
+    }
+
+    private void runPendingDeliveries(){
+        while(!pendingDeliveries.isEmpty()){
+            pendingDeliveries.poll().run();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package horizons.cstest.manager;
+
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.OrderSide;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class TickLadderTest {
+
+    @Test
+    public void shouldKeepBestLevelWithinBandTest(){
+        TickLadder ladder = new TickLadder(BUY, 300, 64);
+        ladder.add(300, 1000);
+        ladder.add(305, 2000);
+        ladder.add(290, 500);
+
+        assertThat(ladder.priceAt(0), is(305L));
+        assertThat(ladder.levelAt(0), is(new AggregatedOrder(BUY, 305, 2.0)));
+        assertThat(ladder.remove(305, 2000), is(true));
+        assertThat(ladder.priceAt(0), is(300L));
+        assertThat(ladder.remove(305, 2000), is(false));
+        assertThat(ladder.size(), is(2));
+    }
+
+    @Test
+    public void shouldOrderLevelsOutsideBandTest(){
+        TickLadder ladder = new TickLadder(SELL, 300, 10);
+        ladder.add(300, 1000);
+        ladder.add(301, 1000);
+        ladder.add(302, 1000);
+        ladder.add(250, 1000); // better than the band
+        ladder.add(400, 1000); // worse than it
+
+        assertThat(ladder.base(), is(295L));
+        assertThat(ladder.priceAt(0), is(250L));
+        assertThat(ladder.priceAt(4), is(400L));
+        assertThat(ladder.levels(3).get(2), is(new AggregatedOrder(SELL, 301, 1.0)));
+    }
+
+    @Test
+    public void shouldMoveBandWhenPricesDriftTest(){
+        TickLadder ladder = new TickLadder(SELL, 300, 10);
+        ladder.add(300, 1000);
+        for(long price = 400; price < 403; price++){
+            ladder.add(price, 1000);
+        }
+
+        assertThat(ladder.base(), is(295L)); // one level in the band, centred on the best price
+        assertThat(ladder.remove(300, 1000), is(true));
+        ladder.add(403, 1000);
+        assertThat(ladder.base(), is(395L));
+        assertThat(ladder.priceAt(0), is(400L));
+        assertThat(ladder.size(), is(4));
+    }
+
+    @Test
+    public void shouldAnswerQueriesAcrossWideBandTest(){
+        TickLadder ladder = new TickLadder(BUY, 50_000, 100_000);
+        ladder.add(99_999, 1000);
+        ladder.add(50_000, 2000);
+        ladder.add(1, 3000);
+        ladder.add(150_000, 500); // better than the band
+
+        assertThat(ladder.levelAt(2), is(new AggregatedOrder(BUY, 50_000, 2.0)));
+        assertThat(ladder.priceAt(3), is(1L));
+        assertThat(ladder.depthWithin(100_000), is(3500L));
+        assertThat(ladder.depthWithin(149_999), is(6500L));
+        assertThat(ladder.vwap(1500), is((150_000.0 * 500 + 99_999.0 * 1000) / 1500));
+        assertThat(ladder.vwap(6501) == null, is(true));
+    }
+
+    @Test
+    public void shouldMatchPriceLadderWhilePricesDriftTest(){
+        Random random = new Random(21);
+        for(OrderSide side : OrderSide.values()){
+            TickLadder ladder = new TickLadder(side, 1000, 32);
+            PriceLadder expected = new PriceLadder(side);
+            long mid = 1000;
+            for(int i = 0; i < 20_000; i++){
+                mid = Math.max(100, mid + random.nextInt(3) - 1);
+                long price = mid + (long) (random.nextGaussian() * 20);
+                long quantity = 1 + random.nextInt(1000);
+                if(random.nextInt(3) == 0 && expected.quantity(price) > 0){
+                    long removed = Math.min(quantity, expected.quantity(price));
+                    assertThat(ladder.remove(price, removed), is(expected.remove(price, removed)));
+                }
+                else {
+                    ladder.add(price, quantity);
+                    expected.add(price, quantity);
+                }
+                if(i % 13 == 0){
+                    assertThat(ladder.levels(), is(expected.levels()));
+                    assertThat(ladder.cumulativeLevels(), is(expected.cumulativeLevels()));
+                    long range = random.nextInt(40);
+                    assertThat(ladder.depthWithin(range), is(expected.depthWithin(range)));
+                    long units = 1 + random.nextInt(50_000);
+                    Double vwap = ladder.vwap(units);
+                    Double expectedVwap = expected.vwap(units);
+                    assertThat(vwap == null, is(expectedVwap == null));
+                    if(null != vwap){
+                        assertThat(Math.abs(vwap - expectedVwap) < 1e-6, is(true));
+                    }
+                }
+                if(!expected.isEmpty()){
+                    assertThat(ladder.levelAt(0), is(expected.levelAt(0)));
+                    int level = random.nextInt(expected.size());
+                    assertThat(ladder.levelAt(level), is(expected.levelAt(level)));
+                    assertThat(ladder.priceAt(level), is(expected.priceAt(level)));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package horizons.cstest.manager;
+
+public class TickOrderBookTest extends OrderBookTest {
+
+    // the band is too narrow for the prices used, so levels also go outside it and it has to move
+    @Override
+    protected OrderBook newOrderBook(){
+        return SimpleOrderBook.tickIndexed(300, 8);
+    }
+}
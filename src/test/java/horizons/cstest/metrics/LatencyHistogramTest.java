@@ -0,0 +1,45 @@
+package horizons.cstest.metrics;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void shouldKeepValuesWithinThreePercentTest(){
+        for(long value : new long[]{0, 1, 63, 64, 65, 1_000, 123_456, 1L << 40, Long.MAX_VALUE}){
+            int bucket = LatencyHistogram.bucket(value);
+            long highest = LatencyHistogram.highestValue(bucket);
+            assertThat(value <= highest, is(true));
+            assertThat(highest - value <= value / 32, is(true));
+            assertThat(LatencyHistogram.lowestValue(bucket) <= value, is(true));
+            assertThat(bucket == 0 || LatencyHistogram.highestValue(bucket - 1) == LatencyHistogram.lowestValue(bucket) - 1, is(true));
+        }
+    }
+
+    @Test
+    public void shouldAnswerPercentilesTest(){
+        LatencyHistogram histogram = new LatencyHistogram();
+        for(long nanos = 1; nanos <= 1000; nanos++){
+            histogram.record(nanos);
+        }
+
+        assertThat(histogram.getCount(), is(1000L));
+        assertThat(histogram.getMax(), is(1000L));
+        assertThat(Math.abs(histogram.getMean() - 500.5) < 500.5 / 32, is(true));
+        assertThat(histogram.getValueAtPercentile(50), is(503L));
+        assertThat(histogram.getValueAtPercentile(100), is(1000L));
+        assertThat(histogram.summary().getP99(), is(991L));
+    }
+
+    @Test
+    public void shouldSummariseEmptyHistogramTest(){
+        LatencySummary summary = new LatencyHistogram().summary();
+
+        assertThat(summary.getCount(), is(0L));
+        assertThat(summary.getMedian(), is(0L));
+        assertThat(summary.getMax(), is(0L));
+    }
+}
@@ -0,0 +1,84 @@
+package horizons.cstest.metrics;
+
+import horizons.cstest.manager.ConcurrentOrderBook;
+import horizons.cstest.manager.ForwardingOrderBook;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.manager.OrderBookTest;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.Order;
+import horizons.cstest.model.OrderSide;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class MeteredOrderBookTest extends OrderBookTest {
+
+    @Override
+    protected OrderBook newOrderBook(){
+        return new MeteredOrderBook(new SimpleOrderBook());
+    }
+
+    @Test
+    public void shouldRecordLatenciesAndCountsTest(){
+        MeteredOrderBook orderBook = new MeteredOrderBook(new SimpleOrderBook());
+        long orderId = orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        orderBook.addOrder(new Order(BUY, 305, 2.0, "user2"));
+        orderBook.addOrder(new Order(BUY, 304, 1.0, "user2"));
+        orderBook.cancelOrder(orderId);
+        orderBook.getAggregatedBuyOrders();
+
+        assertThat(orderBook.getAddOrderLatency().getCount(), is(3L));
+        assertThat(orderBook.getCancelOrderLatency().getCount(), is(1L));
+        assertThat(orderBook.getAggregatedBuyOrdersLatency().getCount(), is(1L));
+        assertThat(orderBook.getAggregatedSellOrdersLatency().getCount(), is(0L));
+        assertThat(orderBook.getOrderCount(), is(2));
+        assertThat(orderBook.getBuyLevelCount(), is(2));
+        assertThat(orderBook.getSellLevelCount(), is(0));
+    }
+
+    @Test
+    public void shouldReadCountsOfThreadSafeBookOnlyWhenPulledTest(){
+        int[] countReads = new int[1];
+        MeteredOrderBook orderBook = MeteredOrderBook.threadSafe(new ForwardingOrderBook(new ConcurrentOrderBook()) {
+            @Override
+            public int getLevelCount(OrderSide side){
+                countReads[0]++;
+                return super.getLevelCount(side);
+            }
+        });
+        long orderId = orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        orderBook.addOrder(new Order(BUY, 305, 2.0, "user2"));
+        orderBook.cancelOrder(orderId);
+        assertThat(countReads[0], is(0));
+
+        assertThat(orderBook.getOrderCount(), is(1));
+        assertThat(orderBook.getBuyLevelCount(), is(1));
+        assertThat(orderBook.getSellLevelCount(), is(0));
+        assertThat(countReads[0], is(2));
+    }
+
+    @Test
+    public void shouldExposeMetricsOverJmxTest() throws Exception {
+        MeteredOrderBook orderBook = new MeteredOrderBook(new SimpleOrderBook());
+        orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+        ObjectName name = orderBook.register("silver");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            CompositeData latency = (CompositeData) server.getAttribute(name, "AddOrderLatency");
+
+            assertThat(latency.get("count"), is(1L));
+            assertThat(server.getAttribute(name, "SellLevelCount"), is(1));
+        }
+        finally {
+            orderBook.unregister("silver");
+        }
+    }
+}
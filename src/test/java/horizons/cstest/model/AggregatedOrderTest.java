@@ -39,4 +39,13 @@ public class AggregatedOrderTest {
         exception.expect(IllegalArgumentException.class);
         AggregatedOrder order = new AggregatedOrder(SELL, 306, 0);
     }
+
+    @Test
+    public void orderQuantityIsHeldInGramsTest(){
+        AggregatedOrder order = AggregatedOrder.ofUnits(SELL, 306, 5500);
+        assertThat(order.getQuantity(), is(5.5));
+        assertThat(order.getQuantityUnits(), is(5500L));
+        assertThat(order, is(new AggregatedOrder(SELL, 306, 5.5)));
+        assertThat(order.toString(), is("5.5 kg for £306"));
+    }
 }
@@ -4,8 +4,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import static horizons.cstest.model.OrderSide.BUY;
 import static horizons.cstest.model.OrderSide.SELL;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsSame.sameInstance;
 import static org.junit.Assert.assertThat;
 
 public class OrderTest {
@@ -52,4 +54,53 @@ public class OrderTest {
         exception.expect(IllegalArgumentException.class);
         Order order = new Order(SELL, 306, 3.5, null);
     }
+
+    @Test
+    public void orderQuantityIsHeldInGramsTest(){
+        Order order = new Order(SELL, 306, 1.2345, "user1");
+        assertThat(order.getQuantityUnits(), is(1235L));
+        assertThat(order.getQuantity(), is(1.235));
+        assertThat(Order.ofUnits(SELL, 306, 1235, "user1"), is(order));
+    }
+
+    @Test
+    public void ordersOfSameTraderShareTraderIdTest(){
+        Order order = new Order(SELL, 306, 3.5, new String("user1"));
+        Order other = new Order(BUY, 300, 1.0, "user1");
+        assertThat(order.getTraderId(), is(other.getTraderId()));
+        assertThat(order.getTrader(), sameInstance(other.getTrader()));
+        assertThat(Order.traders().name(order.getTraderId()), is("user1"));
+        assertThat(Order.ofUnits(SELL, 306, 3500, order.getTraderId()), is(order));
+    }
+
+    @Test
+    public void orderWithUnitsKeepsSideAndTraderTest(){
+        Order order = new Order(SELL, 306, 3.5, "user1");
+        assertThat(order.withUnits(310, 1200), is(new Order(SELL, 310, 1.2, "user1")));
+        assertThat(order.withUnits(310, 1200).hashCode(), is(new Order(SELL, 310, 1.2, "user1").hashCode()));
+    }
+
+    @Test
+    public void orderThrowsExceptionForUnknownTraderIdTest(){
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Check constructor arguments!");
+        Order.ofUnits(SELL, 306, 3500, Order.traders().size());
+    }
+
+    @Test
+    public void orderConstructorThrowsExceptionForQuantityBelowOneGramTest(){
+        exception.expect(IllegalArgumentException.class);
+        Order order = new Order(SELL, 306, 0.0004, "user1");
+    }
+
+    @Test
+    public void orderOfTraderWithoutIdKeepsItsNameTest(){
+        Order order = Order.uninterned(SELL, 306, 3500, "lateUser");
+        assertThat(order.getTraderId(), is(-1));
+        assertThat(order.getTrader(), is("lateUser"));
+        assertThat(order.withUnits(310, 1200), is(Order.uninterned(SELL, 310, 1200, "lateUser")));
+        assertThat(order.hashCode(), is(Order.uninterned(SELL, 306, 3500, "lateUser").hashCode()));
+        assertThat(order.equals(Order.uninterned(SELL, 306, 3500, "otherLateUser")), is(false));
+        assertThat(order.toString(), is("SELL: 3.5 kg for £306 [lateUser]"));
+    }
 }
@@ -0,0 +1,78 @@
+package horizons.cstest.model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class TraderRegistryTest {
+
+    @Rule
+    public final ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldGiveEachTraderOneIdTest(){
+        TraderRegistry registry = new TraderRegistry();
+
+        assertThat(registry.intern("user1"), is(0));
+        assertThat(registry.intern("user2"), is(1));
+        assertThat(registry.intern("user1"), is(0));
+        assertThat(registry.id("user2"), is(1));
+        assertThat(registry.id("user3"), is(-1));
+        assertThat(registry.name(1), is("user2"));
+        assertThat(registry.size(), is(2));
+    }
+
+    @Test
+    public void shouldGiveTraderOneIdAcrossThreadsTest() throws InterruptedException {
+        TraderRegistry registry = new TraderRegistry();
+        Thread[] threads = new Thread[4];
+        for(int t = 0; t < threads.length; t++){
+            threads[t] = new Thread(() -> {
+                for(int i = 0; i < 1000; i++){
+                    assertThat(registry.name(registry.intern("user" + i)), is("user" + i));
+                }
+            });
+            threads[t].start();
+        }
+        for(Thread thread : threads){
+            thread.join();
+        }
+
+        assertThat(registry.size(), is(1000));
+        for(int i = 0; i < 1000; i++){
+            assertThat(registry.name(registry.id("user" + i)), is("user" + i));
+        }
+    }
+
+    @Test
+    public void shouldNotGoOverMaxSizeTest(){
+        TraderRegistry registry = new TraderRegistry(2);
+        registry.intern("user1");
+        registry.intern("user2");
+        assertThat(registry.intern("user1"), is(0));
+
+        exception.expect(IllegalStateException.class);
+        exception.expectMessage("Trader registry is full!");
+        registry.intern("user3");
+    }
+
+    @Test
+    public void shouldNotInternBlankTraderTest(){
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Check trader argument!");
+
+        new TraderRegistry().intern(" ");
+    }
+
+    @Test
+    public void shouldNotInternNewTraderOnceFullTest(){
+        TraderRegistry registry = new TraderRegistry(1);
+        assertThat(registry.tryIntern("user1"), is(0));
+        assertThat(registry.tryIntern("user2"), is(-1));
+        assertThat(registry.tryIntern("user1"), is(0));
+        assertThat(registry.id("user2"), is(-1));
+    }
+}
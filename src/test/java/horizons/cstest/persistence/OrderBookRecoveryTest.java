@@ -0,0 +1,177 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.manager.ConcurrentOrderBook;
+import horizons.cstest.manager.OrderBatch;
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.AggregatedOrder;
+import horizons.cstest.model.Fill;
+import horizons.cstest.model.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNull.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OrderBookRecoveryTest {
+    private static final int WINDOW_SIZE = 1 << 17;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldRecoverFromJournalOnlyTest() throws IOException {
+        long orderId;
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            orderId = orderBook.addOrder(new Order(SELL, 306, 3.5, "user1"));
+            long cancelledId = orderBook.addOrder(new Order(SELL, 310, 1.2, "user2"));
+            orderBook.addOrders(Arrays.asList(new Order(BUY, 300, 2.0, "user3"), new Order(BUY, 300, 1.0, "user3")));
+            orderBook.cancelOrder(cancelledId);
+            orderBook.cancelOrder(new Order(BUY, 300, 1.0, "user3"));
+        }
+
+        try(JournaledOrderBook orderBook = recover(new ConcurrentOrderBook())) {
+            List<AggregatedOrder> levels = orderBook.getAllAggregatedOrders();
+            assertThat(levels.size(), is(2));
+            assertThat(levels.get(0), is(new AggregatedOrder(BUY, 300, 2.0)));
+            assertThat(levels.get(1), is(new AggregatedOrder(SELL, 306, 3.5)));
+            assertThat(orderBook.getOrder(orderId), is(new Order(SELL, 306, 3.5, "user1")));
+            // the id of the cancelled order is not handed out again
+            assertThat(orderBook.addOrder(new Order(SELL, 306, 1.0, "user1")), is(5L));
+        }
+    }
+
+    @Test
+    public void shouldRecoverFromSnapshotAndJournalTest() throws IOException {
+        Path snapshotFile = folder.getRoot().toPath().resolve("snapshot");
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            for(int i = 0; i < 100; i++){
+                orderBook.addOrder(new Order(i % 2 == 0 ? BUY : SELL, 300 + i % 5, 1.0, "user" + i % 3));
+            }
+            OrderBookSnapshot snapshot = orderBook.snapshot(snapshotFile);
+            assertThat(snapshot.getOrderCount(), is(100));
+
+            orderBook.cancelAllForTrader("user0");
+            OrderBatch batch = new OrderBatch();
+            batch.add(new Order(SELL, 320, 4.0, "user4"));
+            batch.cancel(2);
+            orderBook.applyBatch(batch);
+        }
+
+        SimpleOrderBook expected = new SimpleOrderBook();
+        for(int i = 0; i < 100; i++){
+            expected.addOrder(new Order(i % 2 == 0 ? BUY : SELL, 300 + i % 5, 1.0, "user" + i % 3));
+        }
+        expected.cancelAllForTrader("user0");
+        expected.cancelOrder(2);
+        expected.addOrder(new Order(SELL, 320, 4.0, "user4"));
+
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            assertThat(orderBook.getAllAggregatedOrders(), is(expected.getAllAggregatedOrders()));
+            assertThat(orderBook.getOrders().size(), is(expected.getOrders().size()));
+            assertThat(orderBook.getOrdersForTrader("user0").isEmpty(), is(true));
+        }
+    }
+
+    @Test
+    public void shouldRecoverFromRolledJournalTest() throws IOException {
+        Path snapshotFile = folder.getRoot().toPath().resolve("snapshot");
+        Path journalFile = folder.getRoot().toPath().resolve("journal");
+        long size;
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            for(int i = 0; i < 6000; i++){
+                orderBook.addOrder(new Order(BUY, 300 + i % 5, 1.0, "user1"));
+            }
+            size = Files.size(journalFile);
+            orderBook.snapshot(snapshotFile);
+            orderBook.cancelOrder(1);
+            orderBook.addOrder(new Order(SELL, 310, 2.0, "user2"));
+        }
+
+        assertThat(Files.size(journalFile) < size, is(true));
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            assertThat(orderBook.getOrderCount(), is(6000));
+            assertThat(orderBook.getOrder(1), is(nullValue()));
+            assertThat(orderBook.getOrder(6001), is(new Order(SELL, 310, 2.0, "user2")));
+            assertThat(orderBook.addOrder(new Order(SELL, 311, 1.0, "user2")), is(6002L));
+        }
+    }
+
+    @Test
+    public void shouldRecoverAmendedOrdersTest() throws IOException {
+        Path snapshotFile = folder.getRoot().toPath().resolve("snapshot");
+        long snapshotOrderId;
+        long journalOrderId;
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            snapshotOrderId = orderBook.addOrder(new Order(BUY, 300, 1.0, "user1"));
+            orderBook.snapshot(snapshotFile);
+            journalOrderId = orderBook.addOrder(new Order(SELL, 310, 2.0, "user2"));
+            orderBook.amendOrder(journalOrderId, 311, 2.5);
+            orderBook.amendOrder(snapshotOrderId, 300, 0.5);
+        }
+
+        try(JournaledOrderBook orderBook = recover(new SimpleOrderBook())) {
+            assertThat(orderBook.getOrder(snapshotOrderId), is(new Order(BUY, 300, 0.5, "user1")));
+            assertThat(orderBook.getOrder(journalOrderId), is(new Order(SELL, 311, 2.5, "user2")));
+            assertThat(orderBook.getAllAggregatedOrders(), is(Arrays.asList(new AggregatedOrder(BUY, 300, 0.5),
+                                                                             new AggregatedOrder(SELL, 311, 2.5))));
+        }
+    }
+
+    @Test
+    public void shouldRecoverMatchingBookAfterFillsTest() throws IOException {
+        List<Fill> fills = new ArrayList<>();
+        long partlyFilledId;
+        long amendedId;
+        try(JournaledOrderBook orderBook = recoverMatching(fills)) {
+            orderBook.addOrder(new Order(SELL, 307, 1.0, "user1"));
+            orderBook.addOrder(new Order(SELL, 306, 1.0, "user1"));
+            orderBook.addOrder(new Order(BUY, 310, 2.0, "user2")); // fills both
+            partlyFilledId = orderBook.addOrder(new Order(SELL, 308, 3.0, "user1"));
+            orderBook.addOrders(Arrays.asList(new Order(BUY, 308, 1.0, "user2"), new Order(BUY, 309, 0.5, "user3")));
+            amendedId = orderBook.addOrder(new Order(BUY, 300, 2.0, "user3"));
+            orderBook.amendOrder(amendedId, 308, 2.0); // takes the last 1.5 kg and rests with 0.5 kg
+            assertThat(orderBook.getAllAggregatedOrders(), is(Arrays.asList(new AggregatedOrder(BUY, 308, 0.5))));
+        }
+        assertThat(fills.size(), is(5));
+
+        fills.clear();
+        try(JournaledOrderBook orderBook = recoverMatching(fills)) {
+            assertThat(orderBook.getAllAggregatedOrders(), is(Arrays.asList(new AggregatedOrder(BUY, 308, 0.5))));
+            assertThat(orderBook.getOrders(), is(Arrays.asList(new Order(BUY, 308, 0.5, "user3"))));
+            assertThat(orderBook.getOrder(partlyFilledId), is(nullValue()));
+            assertThat(orderBook.getOrder(amendedId), is(new Order(BUY, 308, 0.5, "user3")));
+            assertThat(fills.isEmpty(), is(true));
+
+            // matching carries on, and ids of filled orders are not handed out again
+            long orderId = orderBook.addOrder(new Order(SELL, 308, 1.0, "user1"));
+            assertThat(orderId, is(amendedId + 1));
+            assertThat(fills.size(), is(1));
+        }
+
+        try(JournaledOrderBook orderBook = recoverMatching(fills)) {
+            assertThat(orderBook.getAllAggregatedOrders(), is(Arrays.asList(new AggregatedOrder(SELL, 308, 0.5))));
+        }
+    }
+
+    private JournaledOrderBook recoverMatching(List<Fill> fills) throws IOException {
+        Path root = folder.getRoot().toPath();
+        return OrderBookRecovery.recover(SimpleOrderBook::new, fills::add, root.resolve("snapshot"), root.resolve("journal"), 1, WINDOW_SIZE);
+    }
+
+    private JournaledOrderBook recover(OrderBook orderBook) throws IOException {
+        Path root = folder.getRoot().toPath();
+        return OrderBookRecovery.recover(orderBook, root.resolve("snapshot"), root.resolve("journal"), 1, WINDOW_SIZE);
+    }
+}
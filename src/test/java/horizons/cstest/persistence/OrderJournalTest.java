@@ -0,0 +1,204 @@
+package horizons.cstest.persistence;
+
+import horizons.cstest.model.Order;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class OrderJournalTest {
+    private static final int WINDOW_SIZE = 1 << 17;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Test
+    public void shouldReplayEventsInOrderTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try(OrderJournal journal = OrderJournal.open(file, 1, WINDOW_SIZE)) {
+            journal.add(1, new Order(SELL, 306, 3.5, "user1"));
+            journal.cancel(1);
+            journal.cancel(new Order(BUY, 300, 1.2, "user2"));
+            journal.cancelAllForTrader("user3");
+            journal.amend(2, 305, 1500);
+        }
+
+        List<String> events = replay(file, 0);
+
+        assertThat(events.size(), is(5));
+        assertThat(events.get(0), is("add 1 SELL: 3.5 kg for £306 [user1]"));
+        assertThat(events.get(1), is("cancel 1"));
+        assertThat(events.get(2), is("cancel BUY: 1.2 kg for £300 [user2]"));
+        assertThat(events.get(3), is("cancel trader user3"));
+        assertThat(events.get(4), is("amend 2 to 1500 g at 305"));
+    }
+
+    @Test
+    public void shouldContinueAcrossWindowsAndRestartsTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        try(OrderJournal journal = OrderJournal.open(file, 0, WINDOW_SIZE)) {
+            for(long orderId = 1; orderId <= 5000; orderId++){
+                journal.add(orderId, new Order(BUY, 300, 1.0, "user1"));
+            }
+        }
+        long position;
+        try(OrderJournal journal = OrderJournal.open(file, 0, WINDOW_SIZE)) {
+            journal.cancel(5000);
+            position = journal.position();
+        }
+
+        List<String> events = replay(file, 0);
+
+        assertThat(events.size(), is(5001));
+        assertThat(events.get(4999), is("add 5000 BUY: 1.0 kg for £300 [user1]"));
+        assertThat(events.get(5000), is("cancel 5000"));
+        assertThat(position > WINDOW_SIZE, is(true));
+    }
+
+    @Test
+    public void shouldStopAtTornRecordAndOverwriteItTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        long tornPosition;
+        try(OrderJournal journal = OrderJournal.open(file, 1, WINDOW_SIZE)) {
+            journal.cancel(1);
+            tornPosition = journal.position();
+            journal.cancel(2);
+        }
+        try(RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(tornPosition + 12); // inside the body of the second record
+            raf.writeByte(0x7F);
+        }
+
+        assertThat(replay(file, 0).size(), is(1));
+
+        try(OrderJournal journal = OrderJournal.open(file, 1, WINDOW_SIZE)) {
+            assertThat(journal.position(), is(tornPosition));
+            journal.cancel(3);
+        }
+        List<String> events = replay(file, 0);
+        assertThat(events.size(), is(2));
+        assertThat(events.get(1), is("cancel 3"));
+    }
+
+    @Test
+    public void shouldSyncOnceOldestRecordIsTooOldTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        long[] now = {1_000};
+        try(OrderJournal journal = OrderJournal.open(file, 100, WINDOW_SIZE, 50, () -> now[0])) {
+            journal.cancel(1);
+            now[0] += 30;
+            journal.cancel(2);
+            assertThat(journal.unsynced(), is(2));
+
+            now[0] += 20;
+            journal.cancel(3);
+            assertThat(journal.unsynced(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldSyncOnAgeAloneWhenNotCountingRecordsTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        long[] now = {1_000};
+        try(OrderJournal journal = OrderJournal.open(file, 0, WINDOW_SIZE, 50, () -> now[0])) {
+            journal.cancel(1);
+            now[0] += 50;
+            journal.cancel(2);
+            assertThat(journal.unsynced(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldSyncQuietJournalWhenDueTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        long[] now = {1_000};
+        try(OrderJournal journal = OrderJournal.open(file, 100, WINDOW_SIZE, 50, () -> now[0])) {
+            journal.cancel(1);
+            now[0] += 49;
+            journal.syncIfDue();
+            assertThat(journal.unsynced(), is(1));
+
+            now[0] += 1;
+            journal.syncIfDue();
+            assertThat(journal.unsynced(), is(0));
+        }
+    }
+
+    @Test
+    public void shouldDropWindowsBeforeRolledPositionTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("journal");
+        long position;
+        try(OrderJournal journal = OrderJournal.open(file, 0, WINDOW_SIZE)) {
+            for(long orderId = 1; orderId <= 8000; orderId++){
+                journal.add(orderId, new Order(BUY, 300, 1.0, "user1"));
+            }
+            position = journal.position();
+            journal.cancel(8000);
+            long size = Files.size(file);
+
+            assertThat(journal.roll(position), is(true));
+            assertThat(Files.size(file) < size, is(true));
+            assertThat(journal.position() > position, is(true));
+            journal.cancel(7999);
+        }
+        try(OrderJournal journal = OrderJournal.open(file, 0, WINDOW_SIZE)) {
+            journal.cancel(7998);
+            assertThat(journal.roll(position), is(false));
+        }
+
+        List<String> events = replay(file, position);
+        assertThat(events.size(), is(3));
+        assertThat(events.get(0), is("cancel 8000"));
+        assertThat(events.get(2), is("cancel 7998"));
+
+        exception.expect(IllegalArgumentException.class);
+        exception.expectMessage("Check position argument!");
+        replay(file, 0);
+    }
+
+    private static List<String> replay(Path file, long position) throws IOException {
+        List<String> events = new ArrayList<>();
+        OrderJournal.replay(file, position, new JournalListener() {
+            @Override
+            public void onAdd(long timestamp, long orderId, Order order){
+                events.add("add " + orderId + " " + order);
+            }
+
+            @Override
+            public void onCancel(long timestamp, long orderId){
+                events.add("cancel " + orderId);
+            }
+
+            @Override
+            public void onCancelOrder(long timestamp, Order order){
+                events.add("cancel " + order);
+            }
+
+            @Override
+            public void onCancelTrader(long timestamp, String trader){
+                events.add("cancel trader " + trader);
+            }
+
+            @Override
+            public void onAmend(long timestamp, long orderId, long price, long quantity){
+                events.add("amend " + orderId + " to " + quantity + " g at " + price);
+            }
+        }, WINDOW_SIZE);
+        return events;
+    }
+}
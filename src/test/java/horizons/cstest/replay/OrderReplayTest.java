@@ -0,0 +1,80 @@
+package horizons.cstest.replay;
+
+import horizons.cstest.manager.OrderBook;
+import horizons.cstest.manager.SimpleOrderBook;
+import horizons.cstest.model.Order;
+import horizons.cstest.persistence.JournaledOrderBook;
+import horizons.cstest.persistence.OrderBookRecovery;
+import horizons.cstest.persistence.OrderJournal;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static horizons.cstest.model.OrderSide.BUY;
+import static horizons.cstest.model.OrderSide.SELL;
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class OrderReplayTest {
+    private static final long START = 1_500_000_000_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void shouldReplayGeneratedEventsIntoBookTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("events");
+        new SyntheticOrderGenerator(7, 20, 0.4).generate(file, 20_000, 100_000, 300, START);
+
+        OrderBook orderBook = new SimpleOrderBook();
+        ReplayReport report = new OrderReplay(orderBook, 0).replay(file);
+
+        assertThat(report.getAdds() + report.getCancels(), is(20_000L));
+        assertThat(report.getUnknownCancels(), is(0L));
+        assertThat(report.getAddLatency().getCount(), is(report.getAdds()));
+        assertThat(orderBook.getOrderCount(), is((int) (report.getAdds() - report.getCancels())));
+        // the book ends up as it would have been recovered from the same events
+        try(JournaledOrderBook recovered = OrderBookRecovery.recover(new SimpleOrderBook(), folder.getRoot().toPath().resolve("none"), file, 0)) {
+            assertThat(orderBook.getAllAggregatedOrders(), is(recovered.getAllAggregatedOrders()));
+        }
+    }
+
+    @Test
+    public void shouldGenerateSameEventsForSameSeedTest() throws IOException {
+        Path file1 = folder.getRoot().toPath().resolve("events1");
+        Path file2 = folder.getRoot().toPath().resolve("events2");
+        new SyntheticOrderGenerator(11, 5, 0.3).generate(file1, 1_000, 1_000, 300, START);
+        new SyntheticOrderGenerator(11, 5, 0.3).generate(file2, 1_000, 1_000, 300, START);
+
+        assertThat(Arrays.equals(Files.readAllBytes(file1), Files.readAllBytes(file2)), is(true));
+    }
+
+    @Test
+    public void shouldPaceEventsByTimestampsTest() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("events");
+        long[] now = {START};
+        try(OrderJournal journal = OrderJournal.open(file, 0, () -> now[0])) {
+            journal.add(1, new Order(SELL, 306, 3.5, "user1"));
+            now[0] += 100_000_000;
+            journal.add(2, new Order(BUY, 305, 2.0, "user2"));
+            now[0] += 100_000_000;
+            journal.cancel(1);
+            journal.cancel(3); // never added
+            journal.amend(4, 306, 1000); // never added
+        }
+
+        ReplayReport report = new OrderReplay(new SimpleOrderBook(), 2).replay(file);
+
+        assertThat(report.getElapsedNanos() >= 100_000_000, is(true));
+        assertThat(report.getAdds(), is(2L));
+        assertThat(report.getCancels(), is(1L));
+        assertThat(report.getUnknownCancels(), is(1L));
+        assertThat(report.getUnknownAmends(), is(1L));
+        assertThat(report.getAmends(), is(0L));
+    }
+}